@@ -0,0 +1,106 @@
+package com.redmancometh.configcore.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.potion.PotionEffect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.TypeAdapter;
+import com.redmancometh.configcore.config.ConfigManager.LocationAdapter;
+import com.redmancometh.configcore.config.ConfigManager.PathAdapter;
+import com.redmancometh.configcore.config.ConfigManager.PotionEffectAdapter;
+import com.redmancometh.configcore.config.EnumLookupAdapterFactory;
+
+/**
+ * A single value through each of the standard adapters, reader creation
+ * included. These run for every matching value in every config, so the
+ * allocation numbers matter as much as the times.
+ *
+ * @author Redmancometh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdapterBenchmark {
+	private final TypeAdapter<Material> materialAdapter = EnumLookupAdapterFactory.adapterFor(Material.class);
+	private final LocationAdapter locationAdapter = new LocationAdapter();
+	private final PotionEffectAdapter potionEffectAdapter = new PotionEffectAdapter();
+	private final PathAdapter pathAdapter = new PathAdapter();
+	private PrintStream stdout;
+
+	@Setup
+	public void setup() {
+		HeadlessBukkit.install();
+		// The location adapter prints for every field it reads; the printing is
+		// still measured, it just doesn't flood the console
+		stdout = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(stdout);
+	}
+
+	@Benchmark
+	public Material material() throws IOException {
+		return materialAdapter.fromJson("\"DIAMOND_SWORD\"");
+	}
+
+	@Benchmark
+	public Material materialWithSpaces() throws IOException {
+		return materialAdapter.fromJson("\"diamond sword\"");
+	}
+
+	@Benchmark
+	public Location location() throws IOException {
+		return locationAdapter.fromJson("{\"x\": 12.5, \"y\": 64, \"z\": -300.25, \"world\": \"world\"}");
+	}
+
+	@Benchmark
+	public PotionEffect potionEffect() throws IOException {
+		return potionEffectAdapter.fromJson("{\"effect\": \"speed\", \"duration\": 200, \"amplifier\": 1}");
+	}
+
+	@Benchmark
+	public String pathWithColors() throws IOException {
+		return pathAdapter.fromJson("\"&6Gold &lbold&r plugins//Shop\\\\items\"");
+	}
+
+	@Benchmark
+	public String pathPlain() throws IOException {
+		return pathAdapter.fromJson("\"just a plain string\"");
+	}
+
+	@Benchmark
+	public String pathUrl() throws IOException {
+		return pathAdapter.fromJson("\"jdbc:mysql://localhost:3306/server\"");
+	}
+}
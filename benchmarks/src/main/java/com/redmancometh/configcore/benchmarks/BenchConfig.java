@@ -0,0 +1,90 @@
+package com.redmancometh.configcore.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.potion.PotionEffect;
+
+import com.google.gson.stream.JsonWriter;
+
+import lombok.Data;
+
+/**
+ * A shop-like config with a bit of everything the standard adapters handle:
+ * color coded strings, paths, materials, potion effects, lists and maps.
+ *
+ * @author Redmancometh
+ *
+ */
+@Data
+public class BenchConfig {
+	private static final String[] MATERIALS = { "stone", "diamond sword", "GOLD_INGOT", "emerald", "bow", "apple" };
+	private static final String[] EFFECTS = { "speed", "jump", "regeneration", "night_vision" };
+	private String name;
+	private String motd;
+	private List<Entry> entries;
+
+	@Data
+	public static class Entry {
+		private int id;
+		private String name;
+		private Material icon;
+		private double price;
+		private String dataFolder;
+		private List<String> lore;
+		private Map<String, Integer> limits;
+		private PotionEffect effect;
+	}
+
+	/**
+	 * Write a config with the given number of entries. The JSON is written by
+	 * hand since not every standard adapter can write its type back out.
+	 *
+	 * @param file
+	 * @param entries
+	 * @throws IOException
+	 */
+	public static void write(Path file, int entries) throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+				JsonWriter json = new JsonWriter(out)) {
+			json.setIndent("\t");
+			json.beginObject();
+			json.name("name").value("Benchmark shop");
+			json.name("motd").value("&aWelcome to the &lbenchmark&r shop!");
+			json.name("entries").beginArray();
+			for (int i = 0; i < entries; i++)
+				writeEntry(json, i);
+			json.endArray();
+			json.endObject();
+		}
+	}
+
+	private static void writeEntry(JsonWriter json, int i) throws IOException {
+		json.beginObject();
+		json.name("id").value(i);
+		json.name("name").value("&6Item &e#" + i);
+		json.name("icon").value(MATERIALS[i % MATERIALS.length]);
+		json.name("price").value(i * 1.25);
+		json.name("data-folder").value("plugins//Shop//items//" + i);
+		json.name("lore").beginArray();
+		json.value("&7A perfectly ordinary item").value("&7Sold by the &bbenchmark").value("Plain lore line " + i);
+		json.endArray();
+		json.name("limits").beginObject();
+		json.name("daily").value(i % 64);
+		json.name("weekly").value(i % 512);
+		json.endObject();
+		json.name("effect").beginObject();
+		json.name("effect").value(EFFECTS[i % EFFECTS.length]);
+		json.name("duration").value(200 + i % 100);
+		json.name("amplifier").value(i % 3);
+		json.endObject();
+		json.endObject();
+	}
+}
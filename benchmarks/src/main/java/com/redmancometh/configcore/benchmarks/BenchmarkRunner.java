@@ -0,0 +1,35 @@
+package com.redmancometh.configcore.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler on, so every result comes with its
+ * allocation rate per operation. Takes the usual JMH arguments:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar                  # everything
+ * java -jar target/benchmarks.jar Adapter -f 2     # matching benchmarks, two forks
+ * </pre>
+ *
+ * Run it from a scratch directory: {@link InitConfigBenchmark} writes its files
+ * to config/ under the working directory.
+ *
+ * @author Redmancometh
+ *
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		if (commandLine.getIncludes().isEmpty())
+			builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+		Options options = builder.parent(commandLine).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
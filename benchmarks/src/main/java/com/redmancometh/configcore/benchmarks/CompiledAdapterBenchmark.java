@@ -0,0 +1,118 @@
+package com.redmancometh.configcore.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.redmancometh.configcore.config.CompiledConfig;
+import com.redmancometh.configcore.config.GsonRegistry;
+
+/**
+ * The same classes read and written by Gson's reflective adapter and by a
+ * compiled one. Mostly numbers and flags, the fields the compiled adapter
+ * doesn't box.
+ *
+ * @author Redmancometh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledAdapterBenchmark {
+	@Param({ "1000" })
+	public int entries;
+	private final Gson gson = GsonRegistry.standard();
+	private String json;
+	private ReflectiveLimits reflective;
+	private CompiledLimits compiled;
+
+	@Setup
+	public void setup() throws IOException {
+		StringWriter out = new StringWriter();
+		try (JsonWriter writer = new JsonWriter(out)) {
+			writer.beginObject().name("tiers").beginArray();
+			for (int i = 0; i < entries; i++) {
+				writer.beginObject();
+				writer.name("name").value("tier-" + i);
+				writer.name("max-homes").value(i % 20);
+				writer.name("max-warps").value(i % 7);
+				writer.name("cooldown-millis").value(i * 1000L);
+				writer.name("price-multiplier").value(1 + i % 10 / 10.0);
+				writer.name("fly-allowed").value(i % 2 == 0);
+				writer.name("keep-inventory").value(i % 3 == 0);
+				writer.endObject();
+			}
+			writer.endArray().endObject();
+		}
+		json = out.toString();
+		reflective = gson.fromJson(json, ReflectiveLimits.class);
+		compiled = gson.fromJson(json, CompiledLimits.class);
+	}
+
+	@Benchmark
+	public Object readReflective() {
+		return gson.fromJson(json, ReflectiveLimits.class);
+	}
+
+	@Benchmark
+	public Object readCompiled() {
+		return gson.fromJson(json, CompiledLimits.class);
+	}
+
+	@Benchmark
+	public String writeReflective() {
+		return gson.toJson(reflective);
+	}
+
+	@Benchmark
+	public String writeCompiled() {
+		return gson.toJson(compiled);
+	}
+
+	public static class ReflectiveLimits {
+		private Tier[] tiers;
+
+		public static class Tier {
+			private String name;
+			private int maxHomes;
+			private int maxWarps;
+			private long cooldownMillis;
+			private double priceMultiplier;
+			private boolean flyAllowed;
+			private boolean keepInventory;
+		}
+	}
+
+	@CompiledConfig
+	public static class CompiledLimits {
+		private Tier[] tiers;
+
+		@CompiledConfig
+		public static class Tier {
+			private String name;
+			private int maxHomes;
+			private int maxWarps;
+			private long cooldownMillis;
+			private double priceMultiplier;
+			private boolean flyAllowed;
+			private boolean keepInventory;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.redmancometh.configcore.benchmarks;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Just enough of a Bukkit server for the adapters to run outside of one. The
+ * server and its worlds are dynamic proxies: the calls the adapters make are
+ * answered, everything else returns null, zero or false.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class HeadlessBukkit {
+	public static final String WORLD = "world";
+	/**
+	 * The 1.8 effect types, in id order starting at 1.
+	 */
+	private static final String[] EFFECTS = { "SPEED", "SLOW", "FAST_DIGGING", "SLOW_DIGGING", "INCREASE_DAMAGE",
+			"HEAL", "HARM", "JUMP", "CONFUSION", "REGENERATION", "DAMAGE_RESISTANCE", "FIRE_RESISTANCE",
+			"WATER_BREATHING", "INVISIBILITY", "BLINDNESS", "NIGHT_VISION", "HUNGER", "WEAKNESS", "POISON", "WITHER",
+			"HEALTH_BOOST", "ABSORPTION", "SATURATION" };
+	private static final Map<String, World> worlds = new ConcurrentHashMap<>();
+	private static final Logger logger = Logger.getLogger("HeadlessBukkit");
+	private static boolean installed;
+
+	private HeadlessBukkit() {
+	}
+
+	/**
+	 * Install the headless server, unless a server is already set. Safe to call
+	 * from every benchmark's setup.
+	 */
+	public static synchronized void install() {
+		if (installed)
+			return;
+		if (Bukkit.getServer() == null)
+			Bukkit.setServer(proxy(Server.class, HeadlessBukkit::server));
+		for (int i = 0; i < EFFECTS.length; i++)
+			if (PotionEffectType.getByName(EFFECTS[i]) == null)
+				PotionEffectType.registerPotionEffectType(new HeadlessEffectType(i + 1, EFFECTS[i]));
+		installed = true;
+	}
+
+	private static Object server(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "getWorld":
+			if (args[0] instanceof String)
+				return worlds.computeIfAbsent((String) args[0], HeadlessBukkit::world);
+			return null;
+		case "getWorlds":
+			return new ArrayList<>(worlds.values());
+		case "getLogger":
+			return logger;
+		case "isPrimaryThread":
+			return true;
+		case "getName":
+			return "HeadlessBukkit";
+		case "getVersion":
+		case "getBukkitVersion":
+			return "headless";
+		default:
+			return fallback(proxy, method, args);
+		}
+	}
+
+	private static World world(String name) {
+		UUID uid = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+		return proxy(World.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "getName":
+				return name;
+			case "getUID":
+				return uid;
+			default:
+				return fallback(proxy, method, args);
+			}
+		});
+	}
+
+	private static Object fallback(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "equals":
+			return proxy == args[0];
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		case "toString":
+			return "Headless" + method.getDeclaringClass().getSimpleName();
+		default:
+			Class<?> type = method.getReturnType();
+			if (type == boolean.class)
+				return false;
+			if (type == char.class)
+				return '\0';
+			if (type.isPrimitive() && type != void.class)
+				return zero(type);
+			return null;
+		}
+	}
+
+	private static Object zero(Class<?> type) {
+		if (type == byte.class)
+			return (byte) 0;
+		if (type == short.class)
+			return (short) 0;
+		if (type == int.class)
+			return 0;
+		if (type == long.class)
+			return 0L;
+		if (type == float.class)
+			return 0f;
+		return 0d;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(HeadlessBukkit.class.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> handler.invoke(proxy, method, args));
+	}
+
+	private interface Handler {
+		Object invoke(Object proxy, Method method, Object[] args);
+	}
+
+	private static final class HeadlessEffectType extends PotionEffectType {
+		private final String name;
+
+		private HeadlessEffectType(int id, String name) {
+			super(id);
+			this.name = name;
+		}
+
+		@Override
+		public double getDurationModifier() {
+			return 1;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public boolean isInstant() {
+			return false;
+		}
+	}
+}
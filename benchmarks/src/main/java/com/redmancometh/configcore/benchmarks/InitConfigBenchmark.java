@@ -0,0 +1,95 @@
+package com.redmancometh.configcore.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.redmancometh.configcore.config.ConfigExecutors;
+import com.redmancometh.configcore.config.ConfigManager;
+
+/**
+ * Loading a whole config file through {@link ConfigManager}, the path every
+ * startup and reload takes. Files are written to config/ under the working
+ * directory, where the manager looks for them, and removed afterwards.
+ *
+ * @author Redmancometh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InitConfigBenchmark {
+	/**
+	 * Entries in the file: about 3KB, 300KB and 15MB of JSON.
+	 */
+	@Param({ "10", "1000", "50000" })
+	public int entries;
+	@Param({ "false", "true" })
+	public boolean binaryCache;
+	private BenchManager manager;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, InterruptedException, ExecutionException {
+		HeadlessBukkit.install();
+		manager = new BenchManager("bench-" + entries + ".json");
+		manager.setBinaryCache(binaryCache);
+		BenchConfig.write(manager.getConfigPath(), entries);
+		manager.load();
+		if (manager.getConfig() == null)
+			throw new IllegalStateException("Benchmark config didn't load");
+		// Let the binary cache be written before measuring cache hits
+		ConfigExecutors.io().submit(() -> {
+		}).get();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Path file = manager.getConfigPath();
+		Files.deleteIfExists(file.resolveSibling(".cache").resolve(file.getFileName() + ".bin"));
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Object initConfig() {
+		manager.load();
+		return manager.getConfig();
+	}
+
+	/**
+	 * A reload that finds the file unchanged, what every spurious watch event
+	 * costs.
+	 */
+	@Benchmark
+	public boolean reloadUnchanged() {
+		return manager.reload();
+	}
+
+	public static class BenchManager extends ConfigManager<BenchConfig> {
+		public BenchManager(String fileName) {
+			super(fileName, BenchConfig.class);
+		}
+
+		public void load() {
+			initConfig();
+		}
+	}
+}
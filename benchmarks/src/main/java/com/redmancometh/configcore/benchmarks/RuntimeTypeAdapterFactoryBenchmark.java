@@ -0,0 +1,196 @@
+package com.redmancometh.configcore.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.redmancometh.configcore.config.AdapterSet;
+import com.redmancometh.configcore.config.GsonRegistry;
+import com.redmancometh.configcore.config.RuntimeTypeAdapterFactory;
+
+/**
+ * Reading and writing a list of polymorphic values through
+ * {@link RuntimeTypeAdapterFactory}. With the type field first the subtype is
+ * streamed, with it last the object has to be buffered, so both are measured.
+ *
+ * @author Redmancometh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuntimeTypeAdapterFactoryBenchmark {
+	private static final List<Class<? extends Reward>> SUBTYPES = new ArrayList<>();
+	static {
+		SUBTYPES.add(ItemReward.class);
+		SUBTYPES.add(MoneyReward.class);
+		SUBTYPES.add(XpReward.class);
+		SUBTYPES.add(CommandReward.class);
+		SUBTYPES.add(EffectReward.class);
+		SUBTYPES.add(KitReward.class);
+		SUBTYPES.add(RankReward.class);
+		SUBTYPES.add(TitleReward.class);
+		SUBTYPES.add(KeyReward.class);
+		SUBTYPES.add(PetReward.class);
+		SUBTYPES.add(TagReward.class);
+		SUBTYPES.add(HomeReward.class);
+		SUBTYPES.add(FlyReward.class);
+		SUBTYPES.add(BoostReward.class);
+		SUBTYPES.add(TokenReward.class);
+		SUBTYPES.add(LootReward.class);
+	}
+	@Param({ "2", "16" })
+	public int subtypes;
+	@Param({ "true", "false" })
+	public boolean typeFirst;
+	@Param({ "1000" })
+	public int size;
+	private Gson gson;
+	private Rewards rewards;
+	private String json;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		RuntimeTypeAdapterFactory<Reward> factory = RuntimeTypeAdapterFactory.of(Reward.class);
+		for (int i = 0; i < subtypes; i++)
+			factory.registerSubtype(SUBTYPES.get(i));
+		gson = GsonRegistry.configure(new GsonBuilder(), AdapterSet.NONE, FieldNamingPolicy.LOWER_CASE_WITH_DASHES)
+				.registerTypeAdapterFactory(factory).create();
+		rewards = new Rewards();
+		for (int i = 0; i < size; i++) {
+			Reward reward = SUBTYPES.get(i % subtypes).newInstance();
+			reward.amount = i;
+			reward.name = "reward-" + i;
+			reward.weight = i / (double) size;
+			reward.extra.put("tier", i % 5);
+			rewards.rewards.add(reward);
+		}
+		json = gson.toJson(rewards);
+		if (!typeFirst)
+			json = gson.toJson(moveTypeLast(JsonParser.parseString(json)));
+	}
+
+	@Benchmark
+	public Rewards read() {
+		return gson.fromJson(json, Rewards.class);
+	}
+
+	@Benchmark
+	public String write() {
+		return gson.toJson(rewards);
+	}
+
+	private static JsonElement moveTypeLast(JsonElement tree) {
+		JsonArray moved = new JsonArray();
+		for (JsonElement element : tree.getAsJsonObject().getAsJsonArray("rewards")) {
+			JsonObject reward = new JsonObject();
+			for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet())
+				if (!member.getKey().equals("type"))
+					reward.add(member.getKey(), member.getValue());
+			reward.add("type", element.getAsJsonObject().get("type"));
+			moved.add(reward);
+		}
+		JsonObject root = new JsonObject();
+		root.add("rewards", moved);
+		return root;
+	}
+
+	public static class Rewards {
+		private List<Reward> rewards = new ArrayList<>();
+	}
+
+	public static abstract class Reward {
+		private int amount;
+		private String name;
+		private double weight;
+		private Map<String, Integer> extra = new HashMap<>();
+	}
+
+	public static class ItemReward extends Reward {
+		private String item = "diamond";
+	}
+
+	public static class MoneyReward extends Reward {
+		private double money = 100;
+	}
+
+	public static class XpReward extends Reward {
+		private int levels = 5;
+	}
+
+	public static class CommandReward extends Reward {
+		private String command = "say hi";
+	}
+
+	public static class EffectReward extends Reward {
+		private String effect = "speed";
+	}
+
+	public static class KitReward extends Reward {
+		private String kit = "starter";
+	}
+
+	public static class RankReward extends Reward {
+		private String rank = "vip";
+	}
+
+	public static class TitleReward extends Reward {
+		private String title = "&6Champion";
+	}
+
+	public static class KeyReward extends Reward {
+		private String crate = "vote";
+	}
+
+	public static class PetReward extends Reward {
+		private String pet = "wolf";
+	}
+
+	public static class TagReward extends Reward {
+		private String tag = "[OG]";
+	}
+
+	public static class HomeReward extends Reward {
+		private int homes = 1;
+	}
+
+	public static class FlyReward extends Reward {
+		private long seconds = 600;
+	}
+
+	public static class BoostReward extends Reward {
+		private double multiplier = 1.5;
+	}
+
+	public static class TokenReward extends Reward {
+		private int tokens = 10;
+	}
+
+	public static class LootReward extends Reward {
+		private boolean rare = true;
+	}
+}
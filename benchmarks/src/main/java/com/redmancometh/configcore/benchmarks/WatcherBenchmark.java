@@ -0,0 +1,103 @@
+package com.redmancometh.configcore.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.redmancometh.configcore.config.DirectoryWatcher;
+import com.redmancometh.configcore.config.FileWatcher;
+
+/**
+ * What the watchers cost as the number of watched files grows. An idle tick is
+ * what a {@link DirectoryWatcher} pays every second forever, the first scan is
+ * what it pays once per file, and a {@link FileWatcher} check is what every
+ * watch event costs.
+ *
+ * @author Redmancometh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WatcherBenchmark {
+	private static final String[] EXTENSIONS = { "json" };
+	@Param({ "10", "100", "1000" })
+	public int files;
+	private Path dir;
+	private DirectoryWatcher directoryWatcher;
+	private List<FileWatcher> fileWatchers;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("configcore-watch");
+		byte[] content = new String(new char[2048]).replace('\0', ' ').getBytes(StandardCharsets.UTF_8);
+		fileWatchers = new ArrayList<>(files);
+		for (int i = 0; i < files; i++) {
+			Path file = dir.resolve("config-" + i + ".json");
+			Files.write(file, content);
+			fileWatchers.add(new FileWatcher((changed) -> {
+			}, file.toFile()));
+		}
+		directoryWatcher = new DirectoryWatcher((changed) -> {
+		}, dir.toString(), EXTENSIONS);
+		tick(directoryWatcher);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(dir.toFile());
+	}
+
+	@Benchmark
+	public int directoryTick() {
+		return tick(directoryWatcher);
+	}
+
+	@Benchmark
+	public int directoryFirstScan() {
+		return tick(new DirectoryWatcher((changed) -> {
+		}, dir.toString(), EXTENSIONS));
+	}
+
+	@Benchmark
+	public int fileWatcherChecks() {
+		int changed = 0;
+		for (FileWatcher watcher : fileWatchers)
+			if (watcher.hasChanged())
+				changed++;
+		return changed;
+	}
+
+	/**
+	 * The same work as one scheduled tick of the watcher.
+	 */
+	private int tick(DirectoryWatcher watcher) {
+		int changed = 0;
+		for (File file : FileUtils.listFiles(dir.toFile(), EXTENSIONS, true))
+			if (watcher.hasChanged(file))
+				changed++;
+		return changed;
+	}
+}
@@ -1,10 +1,110 @@
 package com.redmancometh.configcore;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
 import org.bukkit.plugin.java.JavaPlugin;
 
+import com.redmancometh.configcore.config.ConfigExecutors;
+import com.redmancometh.configcore.config.ConfigManager;
+import com.redmancometh.configcore.config.ConfigMetrics;
+import com.redmancometh.configcore.config.DefaultConfig;
+import com.redmancometh.configcore.config.DefaultConfigs;
+import com.redmancometh.configcore.config.MainThreadQueue;
+import com.redmancometh.configcore.config.WatchEngine;
+
 public class ConfigCore extends JavaPlugin {
+	private static final List<ConfigManager<?>> managers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Register managers to be picked up by {@link #loadAll()} and
+	 * {@link #loadAllAsync()}.
+	 * 
+	 * @param configManagers
+	 */
+	public static void register(ConfigManager<?>... configManagers) {
+		managers.addAll(Arrays.asList(configManagers));
+	}
+
+	public static List<ConfigManager<?>> getManagers() {
+		return managers;
+	}
+
+	/**
+	 * Load every registered manager that hasn't been loaded yet, parsing them all
+	 * in parallel on the config I/O pool, and block until they're done. Safe to
+	 * call from onEnable: nothing here waits on the main thread.
+	 */
+	public static void loadAll() {
+		loadAll(pending());
+	}
+
+	public static void loadAll(Collection<? extends ConfigManager<?>> configManagers) {
+		CompletableFuture.allOf(configManagers.stream().map((manager) -> manager.initAsync(Runnable::run))
+				.toArray(CompletableFuture[]::new)).join();
+	}
+
+	/**
+	 * Start loading every registered manager that hasn't been loaded yet in
+	 * parallel. Each one is applied on the main thread as it finishes.
+	 * 
+	 * @return completes once all of them are live
+	 */
+	public static CompletableFuture<Void> loadAllAsync() {
+		return loadAllAsync(pending());
+	}
+
+	public static CompletableFuture<Void> loadAllAsync(Collection<? extends ConfigManager<?>> configManagers) {
+		return CompletableFuture.allOf(
+				configManagers.stream().map(ConfigManager::initAsync).toArray(CompletableFuture[]::new));
+	}
+
+	/**
+	 * Extract a plugin's default configs into the config directory, opening its
+	 * jar once and writing the files in parallel; see {@link DefaultConfigs}.
+	 * Registered managers that aren't loaded yet are seeded with what's on disk
+	 * for their file, so loading them doesn't read it again.
+	 * 
+	 * @param plugin
+	 * @param fileNames the files, relative to the root of the jar
+	 * @return what's on disk for each file afterwards
+	 * @throws IOException
+	 */
+	public static List<DefaultConfig> extractDefaults(JavaPlugin plugin, String... fileNames) throws IOException {
+		return extractDefaults(plugin.getClass(), Paths.get("config"), Arrays.asList(fileNames));
+	}
+
+	public static List<DefaultConfig> extractDefaults(Class<?> owner, Path directory, Collection<String> fileNames)
+			throws IOException {
+		List<DefaultConfig> extracted = DefaultConfigs.extract(owner, directory, fileNames);
+		for (ConfigManager<?> manager : managers)
+			extracted.forEach(manager::seed);
+		return extracted;
+	}
+
+	private static List<ConfigManager<?>> pending() {
+		return managers.stream().filter((manager) -> !manager.isLoaded()).collect(Collectors.toList());
+	}
+
 	@Override
 	public void onEnable() {
 		super.onEnable();
 	}
+
+	@Override
+	public void onDisable() {
+		ConfigManager.flushPendingSaves();
+		MainThreadQueue.getInstance().shutdown();
+		WatchEngine.getInstance().shutdown();
+		ConfigExecutors.shutdown();
+		ConfigMetrics.unregisterAll();
+		super.onDisable();
+	}
 }
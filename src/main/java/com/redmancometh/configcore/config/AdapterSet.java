@@ -0,0 +1,66 @@
+package com.redmancometh.configcore.config;
+
+import java.util.function.Consumer;
+
+import org.bukkit.Location;
+import org.bukkit.potion.PotionEffect;
+
+import com.google.gson.GsonBuilder;
+import com.redmancometh.configcore.config.ConfigManager.ClassAdapter;
+import com.redmancometh.configcore.config.ConfigManager.LocationAdapter;
+import com.redmancometh.configcore.config.ConfigManager.PathAdapter;
+import com.redmancometh.configcore.config.ConfigManager.PotionEffectAdapter;
+
+/**
+ * A named set of adapters registered on a Gson. Sets are compared by identity,
+ * so keep custom ones in a constant and every manager using that constant will
+ * share one Gson out of the {@link GsonRegistry}.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class AdapterSet {
+	/**
+	 * The adapters every {@link ConfigManager} has always used. Enums are all read
+	 * by the {@link EnumLookupAdapterFactory}, which replaced the per-enum
+	 * adapters.
+	 */
+	public static final AdapterSet STANDARD = new AdapterSet("standard",
+			(builder) -> registerStandard(builder.registerTypeHierarchyAdapter(String.class, new PathAdapter())));
+	/**
+	 * The standard adapters, minus the color and path rewriting of every string.
+	 * Strings are read as written unless their field asks for it with one of the
+	 * {@link StringPostProcessor} adapters.
+	 */
+	public static final AdapterSet ANNOTATED_STRINGS = new AdapterSet("annotated-strings",
+			AdapterSet::registerStandard);
+	/**
+	 * Plain Gson, as used by {@link AdapterlessConfigManager}.
+	 */
+	public static final AdapterSet NONE = new AdapterSet("none", (builder) -> {
+	});
+	private final String name;
+	private final Consumer<GsonBuilder> registrar;
+
+	public AdapterSet(String name, Consumer<GsonBuilder> registrar) {
+		this.name = name;
+		this.registrar = registrar;
+	}
+
+	private static GsonBuilder registerStandard(GsonBuilder builder) {
+		return builder.registerTypeAdapterFactory(new EnumLookupAdapterFactory())
+				.registerTypeHierarchyAdapter(PotionEffect.class, new PotionEffectAdapter())
+				.registerTypeAdapter(Location.class, new LocationAdapter())
+				.registerTypeHierarchyAdapter(Class.class, new ClassAdapter());
+	}
+
+	public GsonBuilder apply(GsonBuilder builder) {
+		registrar.accept(builder);
+		return builder;
+	}
+
+	@Override
+	public String toString() {
+		return "AdapterSet[" + name + "]";
+	}
+}
@@ -1,17 +1,20 @@
 package com.redmancometh.configcore.config;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Modifier;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.commons.io.FileUtils;
 
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.redmancometh.configcore.config.validation.ValidationScope;
 import lombok.Getter;
 
 /**
@@ -24,11 +27,15 @@ import lombok.Getter;
 public class AdapterlessConfigManager<T> {
 
 	@Getter
-	private Gson gson = new GsonBuilder().excludeFieldsWithModifiers(Modifier.PROTECTED)
-			.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_DASHES).setPrettyPrinting().create();
+	private Gson gson = GsonRegistry.get(AdapterSet.NONE, FieldNamingPolicy.LOWER_CASE_WITH_DASHES);
 	private String fileName;
 	private Class<T> clazz;
-	private T config;
+	private volatile T config;
+	/**
+	 * Where the config is merged from instead of its file alone, if set
+	 */
+	private ConfigLayers layers;
+	private volatile byte[] seed;
 
 	public AdapterlessConfigManager(String fileName, Class<T> clazz) {
 		super();
@@ -40,34 +47,102 @@ public class AdapterlessConfigManager<T> {
 		initConfig();
 	}
 
+	/**
+	 * Same as {@link #init()}, but the defaults are copied and the file parsed on
+	 * the config I/O pool, and the result is only applied on the main thread.
+	 * 
+	 * @return completes with the loaded config once it's live
+	 */
+	public CompletableFuture<T> initAsync() {
+		long start = System.nanoTime();
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return readConfig();
+			} catch (IOException e) {
+				getMetrics().failed(getConfigPath(), false, e);
+				throw new CompletionException(e);
+			} catch (RuntimeException e) {
+				getMetrics().failed(getConfigPath(), false, e);
+				throw e;
+			}
+		}, ConfigExecutors.io()).thenApplyAsync((conf) -> {
+			this.config = conf;
+			getMetrics().published(getConfigPath(), false, System.nanoTime() - start);
+			return conf;
+		}, ConfigExecutors.mainThread());
+	}
+
 	public void writeConfig() {
-		try (FileWriter w = new FileWriter("config" + File.separator + "config.json")) {
-			getGson().toJson(config, w);
-		} catch (IOException e) {
+		try {
+			Object written = layers == null ? config : layers.overrides(getGson().toJsonTree(config));
+			AtomicFiles.write(getConfigPath(), AtomicFiles.toJsonBytes(getGson(), written));
+		} catch (IOException | JsonParseException e) {
 			e.printStackTrace();
 		}
 	}
 
 	protected void initConfig() {
+		long start = System.nanoTime();
+		try {
+			this.config = readConfig();
+			getMetrics().published(getConfigPath(), false, System.nanoTime() - start);
+		} catch (IOException | RuntimeException e) {
+			getMetrics().failed(getConfigPath(), false, e);
+		}
+
+	}
+
+	protected T readConfig() throws IOException {
+		if (layers != null)
+			return readLayers();
 		File f = new File("config");
 		if (!f.exists()) {
 			f.mkdir();
 			URL inputUrl = getClass().getResource("/" + fileName);
 			try {
-				System.out.println("COPYING TO: " + new File("config/" + fileName));
 				FileUtils.copyURLToFile(inputUrl, new File("config/" + fileName));
+				getMetrics().defaultsCopied(getConfigPath());
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
 		}
-		try (FileReader reader = new FileReader("config" + File.separator + fileName)) {
-			System.out.println("CLASS: " + clazz);
+		byte[] seeded = seed;
+		seed = null;
+		ConfigSource source = seeded == null ? ConfigSource.read(getConfigPath()) : ConfigSource.of(seeded);
+		getMetrics().read(source.size());
+		long start = System.nanoTime();
+		try (Reader reader = source.reader(); ValidationScope validation = ValidationScope.open()) {
 			T conf = getGson().fromJson(reader, clazz);
-			this.config = conf;
-		} catch (IOException e1) {
-			e1.printStackTrace();
+			validation.throwIfInvalid();
+			getMetrics().parsed(System.nanoTime() - start);
+			return conf;
 		}
+	}
 
+	/**
+	 * Merge the layers and parse the result. The defaults in the jar are a layer
+	 * of their own here, so nothing is copied.
+	 */
+	private T readLayers() throws IOException {
+		ConfigLayers.Merged merged = layers.read();
+		getMetrics().read(merged.getSize());
+		if (merged.getTree().isJsonNull())
+			throw new JsonParseException("Every layer of " + getConfigPath() + " is missing or empty");
+		long start = System.nanoTime();
+		try (ValidationScope validation = ValidationScope.open()) {
+			T conf = getGson().fromJson(merged.getTree(), clazz);
+			validation.throwIfInvalid();
+			getMetrics().parsed(System.nanoTime() - start);
+			return conf;
+		}
+	}
+
+	public Path getConfigPath() {
+		return Paths.get("config", fileName);
+	}
+
+	public ConfigMetrics getMetrics() {
+		return ConfigMetrics.of(getConfigPath());
 	}
 
 	public T getConfig() {
@@ -78,4 +153,32 @@ public class AdapterlessConfigManager<T> {
 		this.config = config;
 	}
 
+	/**
+	 * Merge the config from layers instead of reading its file alone, with the
+	 * config's own file on top; see {@link ConfigLayers}. Writes then only save
+	 * what differs from the layers below it.
+	 * 
+	 * @param layers
+	 */
+	public void setLayers(ConfigLayers layers) {
+		this.layers = layers;
+	}
+
+	public ConfigLayers getLayers() {
+		return layers;
+	}
+
+	/**
+	 * Have the first load use the content of a default that was just extracted
+	 * (see {@link DefaultConfigs}) instead of reading the file again. Ignored if
+	 * it's another file or the config is already loaded.
+	 * 
+	 * @param extracted
+	 */
+	public void seed(DefaultConfig extracted) {
+		if (config == null && extracted.getData() != null && extracted.getFile().toAbsolutePath().normalize()
+				.equals(getConfigPath().toAbsolutePath().normalize()))
+			seed = extracted.getData();
+	}
+
 }
@@ -0,0 +1,94 @@
+package com.redmancometh.configcore.config;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.google.gson.Gson;
+
+/**
+ * Crash-safe file writes. Content goes to a temp file next to the target, is
+ * fsynced, then renamed over the target, so a crash leaves either the old
+ * file or the new one but never a truncated mix.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class AtomicFiles {
+	private AtomicFiles() {
+	}
+
+	/**
+	 * Serialize through a buffered UTF-8 writer.
+	 *
+	 * @param gson
+	 * @param value
+	 * @return
+	 * @throws IOException
+	 */
+	public static byte[] toJsonBytes(Gson gson, Object value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+			gson.toJson(value, writer);
+		}
+		return out.toByteArray();
+	}
+
+	public static void write(Path target, byte[] data) throws IOException {
+		Path dir = target.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+		Path temp = Files.createTempFile(dir, "." + target.getFileName(), ".tmp");
+		try {
+			keepPermissions(target, temp);
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+				channel.force(true);
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		syncDirectory(dir);
+	}
+
+	/**
+	 * Temp files are created owner-only, so carry the target's permissions over
+	 * where the filesystem has them.
+	 */
+	private static void keepPermissions(Path target, Path temp) {
+		try {
+			if (Files.exists(target))
+				Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+		} catch (IOException | UnsupportedOperationException e) {
+			// not a POSIX filesystem
+		}
+	}
+
+	/**
+	 * Make the rename itself durable. Only possible on some platforms (not on
+	 * Windows), so failures are ignored.
+	 */
+	private static void syncDirectory(Path dir) {
+		try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException | RuntimeException e) {
+			// not supported here
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package com.redmancometh.configcore.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Compact binary encoding of a JSON token stream. Every distinct name and
+ * string is stored once in a table up front and referenced by index, integers
+ * are stored as varints, and structure is one byte per token. It is replayed
+ * through {@link BinaryJsonReader}, so whatever adapters read it see the same
+ * tokens they'd see from the JSON text.
+ *
+ * @author Redmancometh
+ *
+ */
+final class BinaryJson {
+	static final byte BEGIN_OBJECT = 1;
+	static final byte END_OBJECT = 2;
+	static final byte BEGIN_ARRAY = 3;
+	static final byte END_ARRAY = 4;
+	static final byte NAME = 5;
+	static final byte STRING = 6;
+	static final byte NUMBER = 7;
+	static final byte LONG = 8;
+	static final byte TRUE = 9;
+	static final byte FALSE = 10;
+	static final byte NULL = 11;
+
+	private BinaryJson() {
+	}
+
+	/**
+	 * Encode the value at the reader's position (the whole document, for a fresh
+	 * reader), leaving the reader positioned after it.
+	 *
+	 * @param in
+	 * @return string table followed by the token stream
+	 * @throws IOException
+	 */
+	static byte[] encode(JsonReader in) throws IOException {
+		Encoder encoder = new Encoder();
+		int depth = 0;
+		do {
+			encoder.copyToken(in);
+			depth += encoder.depthChange;
+		} while (depth > 0);
+		return encoder.toByteArray();
+	}
+
+	private static final class Encoder {
+		private final Map<String, Integer> strings = new LinkedHashMap<>();
+		private final ByteArrayOutputStream tokens = new ByteArrayOutputStream();
+		private int depthChange;
+
+		private void copyToken(JsonReader in) throws IOException {
+			depthChange = 0;
+			JsonToken token = in.peek();
+			switch (token) {
+			case BEGIN_OBJECT:
+				in.beginObject();
+				tokens.write(BEGIN_OBJECT);
+				depthChange = 1;
+				break;
+			case END_OBJECT:
+				in.endObject();
+				tokens.write(END_OBJECT);
+				depthChange = -1;
+				break;
+			case BEGIN_ARRAY:
+				in.beginArray();
+				tokens.write(BEGIN_ARRAY);
+				depthChange = 1;
+				break;
+			case END_ARRAY:
+				in.endArray();
+				tokens.write(END_ARRAY);
+				depthChange = -1;
+				break;
+			case NAME:
+				tokens.write(NAME);
+				writeVarLong(tokens, index(in.nextName()));
+				break;
+			case STRING:
+				tokens.write(STRING);
+				writeVarLong(tokens, index(in.nextString()));
+				break;
+			case NUMBER:
+				String number = in.nextString();
+				Long integral = canonicalLong(number);
+				if (integral != null) {
+					tokens.write(LONG);
+					writeVarLong(tokens, (integral << 1) ^ (integral >> 63));
+				} else {
+					tokens.write(NUMBER);
+					writeVarLong(tokens, index(number));
+				}
+				break;
+			case BOOLEAN:
+				tokens.write(in.nextBoolean() ? TRUE : FALSE);
+				break;
+			case NULL:
+				in.nextNull();
+				tokens.write(NULL);
+				break;
+			case END_DOCUMENT:
+				break;
+			}
+		}
+
+		private int index(String string) {
+			Integer index = strings.get(string);
+			if (index == null) {
+				index = strings.size();
+				strings.put(string, index);
+			}
+			return index;
+		}
+
+		private byte[] toByteArray() {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(tokens.size() + strings.size() * 16 + 8);
+			writeVarLong(out, strings.size());
+			for (String string : strings.keySet()) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				writeVarLong(out, bytes.length);
+				out.write(bytes, 0, bytes.length);
+			}
+			byte[] tokenBytes = tokens.toByteArray();
+			out.write(tokenBytes, 0, tokenBytes.length);
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * @return the value if the text is exactly how Long.toString would print it
+	 */
+	private static Long canonicalLong(String text) {
+		int length = text.length();
+		if (length == 0 || length > 20)
+			return null;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if ((c < '0' || c > '9') && !(i == 0 && c == '-'))
+				return null;
+		}
+		try {
+			long value = Long.parseLong(text);
+			return Long.toString(value).equals(text) ? value : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	static long readVarLong(ByteBuffer in) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
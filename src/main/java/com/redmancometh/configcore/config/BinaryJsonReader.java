@@ -0,0 +1,304 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Replays a {@link BinaryJson} encoded token stream as a {@link JsonReader}.
+ * Maps are read through {@link StreamingMapTypeAdapterFactory}, so only use
+ * this with a Gson that has it registered.
+ *
+ * @author Redmancometh
+ *
+ */
+final class BinaryJsonReader extends JsonReader {
+	private static final Reader UNREADABLE_READER = new Reader() {
+		@Override
+		public int read(char[] buffer, int offset, int count) throws IOException {
+			throw new AssertionError();
+		}
+
+		@Override
+		public void close() throws IOException {
+			throw new AssertionError();
+		}
+	};
+	private static final int OBJECT = 1;
+	private static final int ARRAY = 2;
+	private final ByteBuffer in;
+	private final String[] strings;
+	private int[] scopes = new int[32];
+	private String[] pathNames = new String[32];
+	private int[] pathIndices = new int[32];
+	private int depth;
+
+	/**
+	 * @param in positioned at the start of the encoded data, which runs to its
+	 *           limit
+	 */
+	BinaryJsonReader(ByteBuffer in) {
+		super(UNREADABLE_READER);
+		this.in = in;
+		this.strings = new String[(int) BinaryJson.readVarLong(in)];
+		byte[] scratch = new byte[64];
+		for (int i = 0; i < strings.length; i++) {
+			int length = (int) BinaryJson.readVarLong(in);
+			if (length > scratch.length)
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			in.get(scratch, 0, length);
+			strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+
+	private byte op() {
+		return in.hasRemaining() ? in.get(in.position()) : 0;
+	}
+
+	@Override
+	public JsonToken peek() throws IOException {
+		switch (op()) {
+		case BinaryJson.BEGIN_OBJECT:
+			return JsonToken.BEGIN_OBJECT;
+		case BinaryJson.END_OBJECT:
+			return JsonToken.END_OBJECT;
+		case BinaryJson.BEGIN_ARRAY:
+			return JsonToken.BEGIN_ARRAY;
+		case BinaryJson.END_ARRAY:
+			return JsonToken.END_ARRAY;
+		case BinaryJson.NAME:
+			return JsonToken.NAME;
+		case BinaryJson.STRING:
+			return JsonToken.STRING;
+		case BinaryJson.NUMBER:
+		case BinaryJson.LONG:
+			return JsonToken.NUMBER;
+		case BinaryJson.TRUE:
+		case BinaryJson.FALSE:
+			return JsonToken.BOOLEAN;
+		case BinaryJson.NULL:
+			return JsonToken.NULL;
+		default:
+			return JsonToken.END_DOCUMENT;
+		}
+	}
+
+	private void expect(byte op, JsonToken token) throws IOException {
+		if (op() != op)
+			throw new IllegalStateException("Expected " + token + " but was " + peek() + " at path " + getPath());
+		in.get();
+	}
+
+	@Override
+	public void beginObject() throws IOException {
+		expect(BinaryJson.BEGIN_OBJECT, JsonToken.BEGIN_OBJECT);
+		push(OBJECT);
+	}
+
+	@Override
+	public void endObject() throws IOException {
+		expect(BinaryJson.END_OBJECT, JsonToken.END_OBJECT);
+		depth--;
+		valueConsumed();
+	}
+
+	@Override
+	public void beginArray() throws IOException {
+		expect(BinaryJson.BEGIN_ARRAY, JsonToken.BEGIN_ARRAY);
+		push(ARRAY);
+	}
+
+	@Override
+	public void endArray() throws IOException {
+		expect(BinaryJson.END_ARRAY, JsonToken.END_ARRAY);
+		depth--;
+		valueConsumed();
+	}
+
+	@Override
+	public boolean hasNext() throws IOException {
+		byte op = op();
+		return op != BinaryJson.END_OBJECT && op != BinaryJson.END_ARRAY && op != 0;
+	}
+
+	@Override
+	public String nextName() throws IOException {
+		expect(BinaryJson.NAME, JsonToken.NAME);
+		String name = strings[(int) BinaryJson.readVarLong(in)];
+		pathNames[depth - 1] = name;
+		return name;
+	}
+
+	@Override
+	public String nextString() throws IOException {
+		String value;
+		switch (op()) {
+		case BinaryJson.STRING:
+		case BinaryJson.NUMBER:
+			in.get();
+			value = strings[(int) BinaryJson.readVarLong(in)];
+			break;
+		case BinaryJson.LONG:
+			value = Long.toString(readLong());
+			break;
+		default:
+			throw new IllegalStateException("Expected a string but was " + peek() + " at path " + getPath());
+		}
+		valueConsumed();
+		return value;
+	}
+
+	@Override
+	public boolean nextBoolean() throws IOException {
+		byte op = op();
+		if (op != BinaryJson.TRUE && op != BinaryJson.FALSE)
+			throw new IllegalStateException("Expected a boolean but was " + peek() + " at path " + getPath());
+		in.get();
+		valueConsumed();
+		return op == BinaryJson.TRUE;
+	}
+
+	@Override
+	public void nextNull() throws IOException {
+		expect(BinaryJson.NULL, JsonToken.NULL);
+		valueConsumed();
+	}
+
+	@Override
+	public double nextDouble() throws IOException {
+		if (op() == BinaryJson.LONG) {
+			double value = readLong();
+			valueConsumed();
+			return value;
+		}
+		return Double.parseDouble(nextNumberText());
+	}
+
+	@Override
+	public long nextLong() throws IOException {
+		if (op() == BinaryJson.LONG) {
+			long value = readLong();
+			valueConsumed();
+			return value;
+		}
+		String text = nextNumberText();
+		try {
+			return Long.parseLong(text);
+		} catch (NumberFormatException e) {
+			double value = Double.parseDouble(text);
+			long result = (long) value;
+			if (result != value)
+				throw new NumberFormatException("Expected a long but was " + text + " at path " + getPath());
+			return result;
+		}
+	}
+
+	@Override
+	public int nextInt() throws IOException {
+		long value;
+		if (op() == BinaryJson.LONG) {
+			value = readLong();
+			valueConsumed();
+		} else {
+			String text = nextNumberText();
+			double parsed = Double.parseDouble(text);
+			value = (long) parsed;
+			if (value != parsed)
+				throw new NumberFormatException("Expected an int but was " + text + " at path " + getPath());
+		}
+		if ((int) value != value)
+			throw new NumberFormatException("Expected an int but was " + value + " at path " + getPath());
+		return (int) value;
+	}
+
+	private String nextNumberText() throws IOException {
+		byte op = op();
+		if (op != BinaryJson.NUMBER && op != BinaryJson.STRING)
+			throw new IllegalStateException("Expected a number but was " + peek() + " at path " + getPath());
+		return nextString();
+	}
+
+	private long readLong() {
+		in.get();
+		long zigzag = BinaryJson.readVarLong(in);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	@Override
+	public void skipValue() throws IOException {
+		int nested = 0;
+		do {
+			switch (op()) {
+			case BinaryJson.BEGIN_OBJECT:
+			case BinaryJson.BEGIN_ARRAY:
+				in.get();
+				nested++;
+				break;
+			case BinaryJson.END_OBJECT:
+			case BinaryJson.END_ARRAY:
+				in.get();
+				nested--;
+				break;
+			case BinaryJson.NAME:
+			case BinaryJson.STRING:
+			case BinaryJson.NUMBER:
+				in.get();
+				BinaryJson.readVarLong(in);
+				break;
+			case BinaryJson.LONG:
+				readLong();
+				break;
+			case 0:
+				return;
+			default:
+				in.get();
+			}
+		} while (nested > 0);
+		if (depth > 0)
+			pathNames[depth - 1] = "null";
+		valueConsumed();
+	}
+
+	private void push(int scope) {
+		if (depth == scopes.length) {
+			scopes = Arrays.copyOf(scopes, depth * 2);
+			pathNames = Arrays.copyOf(pathNames, depth * 2);
+			pathIndices = Arrays.copyOf(pathIndices, depth * 2);
+		}
+		scopes[depth] = scope;
+		pathNames[depth] = null;
+		pathIndices[depth] = 0;
+		depth++;
+	}
+
+	private void valueConsumed() {
+		if (depth > 0 && scopes[depth - 1] == ARRAY)
+			pathIndices[depth - 1]++;
+	}
+
+	@Override
+	public String getPath() {
+		StringBuilder path = new StringBuilder("$");
+		for (int i = 0; i < depth; i++) {
+			if (scopes[i] == ARRAY)
+				path.append('[').append(pathIndices[i]).append(']');
+			else if (pathNames[i] != null)
+				path.append('.').append(pathNames[i]);
+		}
+		return path.toString();
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + getPath();
+	}
+}
@@ -0,0 +1,149 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cheap file change detection. The size, mtime and file key (the inode on unix)
+ * are compared first, and the content is only hashed when one of them moved,
+ * so an untouched file costs a single stat per check.
+ *
+ * @author Redmancometh
+ *
+ */
+public class ChangeDetector {
+	/**
+	 * Files at least this big are hashed through a mapped buffer, smaller ones
+	 * through a reused heap buffer (mapping a small file costs more than reading
+	 * it, and keeps it locked on Windows until the mapping is collected).
+	 */
+	private static final long MAP_THRESHOLD = 256 * 1024;
+	private static final ThreadLocal<ByteBuffer> READ_BUFFER = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocate(16 * 1024));
+	private final Map<Path, FileState> states = new ConcurrentHashMap<>();
+
+	/**
+	 * Whether the file changed since it was last checked. A file seen for the first
+	 * time counts as changed, a missing file never does.
+	 *
+	 * @param file
+	 * @return
+	 */
+	public boolean hasChanged(Path file) {
+		Path key = file.toAbsolutePath().normalize();
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return false;
+		}
+		FileState last = states.get(key);
+		if (last != null && last.sameAttributes(attributes))
+			return false;
+		try {
+			long hash = hash(key, attributes.size());
+			states.put(key, new FileState(attributes, hash));
+			return last == null || last.hash != hash;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Record the current state of the file without reporting it as changed.
+	 *
+	 * @param file
+	 */
+	public void prime(Path file) {
+		hasChanged(file);
+	}
+
+	/**
+	 * Announce content about to be written to the file ourselves, so the change it
+	 * causes isn't reported. Once the file holds that content, the next check
+	 * records its attributes and reports nothing.
+	 *
+	 * @param file
+	 * @param hash content hash of what will be written
+	 */
+	public void expect(Path file, long hash) {
+		states.put(file.toAbsolutePath().normalize(), new FileState(hash));
+	}
+
+	/**
+	 * Drop whatever is known about the file.
+	 *
+	 * @param file
+	 */
+	public void forget(Path file) {
+		states.remove(file.toAbsolutePath().normalize());
+	}
+
+	/**
+	 * @param file
+	 * @return the last content hash seen for the file, or null if it was never
+	 *         checked
+	 */
+	public Long lastHash(Path file) {
+		FileState state = states.get(file.toAbsolutePath().normalize());
+		return state == null ? null : state.hash;
+	}
+
+	public static long hash(Path file) throws IOException {
+		return hash(file, Files.size(file));
+	}
+
+	private static long hash(Path file, long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (size >= MAP_THRESHOLD)
+				return XXHash64.hash(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), 0);
+			ByteBuffer buffer = READ_BUFFER.get();
+			if (buffer.capacity() < size) {
+				buffer = ByteBuffer.allocate((int) size);
+				READ_BUFFER.set(buffer);
+			}
+			buffer.clear();
+			buffer.limit((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) > 0)
+				continue;
+			buffer.flip();
+			return XXHash64.hash(buffer, 0);
+		}
+	}
+
+	private static final class FileState {
+		private final long size;
+		private final long modified;
+		private final Object fileKey;
+		private final long hash;
+
+		private FileState(long hash) {
+			this.size = -1;
+			this.modified = -1;
+			this.fileKey = null;
+			this.hash = hash;
+		}
+
+		private FileState(BasicFileAttributes attributes, long hash) {
+			this.size = attributes.size();
+			this.modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+			this.fileKey = attributes.fileKey();
+			this.hash = hash;
+		}
+
+		private boolean sameAttributes(BasicFileAttributes attributes) {
+			return size == attributes.size() && modified == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+					&& Objects.equals(fileKey, attributes.fileKey());
+		}
+	}
+}
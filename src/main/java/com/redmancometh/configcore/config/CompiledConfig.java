@@ -0,0 +1,33 @@
+package com.redmancometh.configcore.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a config class to be read and written by a
+ * {@link CompiledTypeAdapterFactory} adapter instead of Gson's reflective one.
+ * The file format doesn't change: names, exclusions, {@code SerializedName} and
+ * {@code JsonAdapter} work the same. Classes it holds need their own
+ * annotation to be compiled too.
+ *
+ * <pre>
+ * &#64;Data
+ * &#64;CompiledConfig
+ * public class ShopConfig {
+ * 	private String name;
+ * 	private int maxItems;
+ * 	private List&lt;ShopItem&gt; items;
+ * }
+ * </pre>
+ *
+ * @author Redmancometh
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CompiledConfig {
+}
@@ -0,0 +1,454 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonSerializer;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.ConstructorConstructor;
+import com.google.gson.internal.ObjectConstructor;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.internal.bind.TreeTypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link CompiledConfig} classes with an adapter compiled
+ * once per class, in place of Gson's reflective one. Everything Gson works out
+ * per field is worked out up front: the names in the file after the naming
+ * policy, what's excluded, the adapter of every field, and a method handle
+ * reading and writing every field, invoked with its exact type so there's no
+ * reflective call per value. Primitive fields are read and written straight
+ * through the reader and writer, without boxing them or going through an
+ * adapter.
+ *
+ * The output is the same as Gson's, so a class can be marked or unmarked
+ * without touching its files. Registered on every Gson out of the
+ * GsonRegistry.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class CompiledTypeAdapterFactory implements TypeAdapterFactory {
+	private final ConstructorConstructor constructors = new ConstructorConstructor(Collections.emptyMap());
+
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		Class<? super T> raw = type.getRawType();
+		if (!raw.isAnnotationPresent(CompiledConfig.class) || raw.isInterface()
+				|| Modifier.isAbstract(raw.getModifiers()))
+			return null;
+		ObjectConstructor<T> constructor = constructors.get(type);
+		return new Adapter<>(gson, constructor, compile(gson, type));
+	}
+
+	/**
+	 * The fields Gson's reflective adapter would bind, subclass first, each
+	 * with its adapter picked.
+	 */
+	private List<Slot> compile(Gson gson, TypeToken<?> token) {
+		List<Slot> slots = new ArrayList<>();
+		Type type = token.getType();
+		Class<?> raw = token.getRawType();
+		while (raw != Object.class && raw != null) {
+			for (Field field : raw.getDeclaredFields()) {
+				boolean serialize = !excluded(gson, field, true);
+				boolean deserialize = !excluded(gson, field, false);
+				if (!serialize && !deserialize)
+					continue;
+				field.setAccessible(true);
+				Type fieldType = $Gson$Types.resolve(type, raw, field.getGenericType());
+				slots.add(slot(gson, field, fieldType, serialize, deserialize));
+			}
+			type = $Gson$Types.resolve(type, raw, raw.getGenericSuperclass());
+			raw = $Gson$Types.getRawType(type);
+		}
+		return slots;
+	}
+
+	private Slot slot(Gson gson, Field field, Type fieldType, boolean serialize, boolean deserialize) {
+		String[] names = names(gson, field);
+		TypeAdapter<?> annotated = annotatedAdapter(gson, constructors, field, fieldType);
+		if (annotated != null)
+			return new Slot(field, names, Kind.OBJECT, annotated, null, serialize, deserialize);
+		TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(fieldType));
+		Kind kind = Kind.OBJECT;
+		// Only Gson's own adapters are known to read primitives the plain way
+		if (field.getType().isPrimitive() && adapter.getClass().getName().startsWith("com.google.gson."))
+			kind = Kind.of(field.getType());
+		return new Slot(field, names, kind, adapter, fieldType, serialize, deserialize);
+	}
+
+	private static boolean excluded(Gson gson, Field field, boolean serialize) {
+		return gson.excluder().excludeClass(field.getType(), serialize)
+				|| gson.excluder().excludeField(field, serialize);
+	}
+
+	/**
+	 * @return the field's name in the file, followed by its alternates
+	 */
+	static String[] names(Gson gson, Field field) {
+		SerializedName annotation = field.getAnnotation(SerializedName.class);
+		if (annotation == null)
+			return new String[] { gson.fieldNamingStrategy().translateName(field) };
+		String[] names = new String[annotation.alternate().length + 1];
+		names[0] = annotation.value();
+		System.arraycopy(annotation.alternate(), 0, names, 1, annotation.alternate().length);
+		return names;
+	}
+
+	/**
+	 * The adapter a {@link JsonAdapter} on the field asks for, built the way Gson
+	 * builds it.
+	 *
+	 * @return the adapter, or null if the field has no {@link JsonAdapter}
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static TypeAdapter<?> annotatedAdapter(Gson gson, ConstructorConstructor constructors, Field field,
+			Type fieldType) {
+		JsonAdapter annotation = field.getAnnotation(JsonAdapter.class);
+		if (annotation == null)
+			return null;
+		Object instance = constructors.get(TypeToken.get(annotation.value())).construct();
+		TypeAdapter<?> adapter;
+		if (instance instanceof TypeAdapter)
+			adapter = (TypeAdapter<?>) instance;
+		else if (instance instanceof TypeAdapterFactory)
+			adapter = ((TypeAdapterFactory) instance).create(gson, TypeToken.get(fieldType));
+		else if (instance instanceof JsonSerializer || instance instanceof JsonDeserializer)
+			adapter = new TreeTypeAdapter(instance instanceof JsonSerializer ? (JsonSerializer) instance : null,
+					instance instanceof JsonDeserializer ? (JsonDeserializer) instance : null, gson,
+					TypeToken.get(fieldType), null);
+		else
+			throw new IllegalArgumentException(field + " has a JsonAdapter of an unsupported type");
+		return annotation.nullSafe() ? adapter.nullSafe() : adapter;
+	}
+
+	private enum Kind {
+		BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, CHAR, OBJECT;
+
+		private static Kind of(Class<?> primitive) {
+			if (primitive == boolean.class)
+				return BOOLEAN;
+			if (primitive == byte.class)
+				return BYTE;
+			if (primitive == short.class)
+				return SHORT;
+			if (primitive == int.class)
+				return INT;
+			if (primitive == long.class)
+				return LONG;
+			if (primitive == float.class)
+				return FLOAT;
+			if (primitive == double.class)
+				return DOUBLE;
+			return CHAR;
+		}
+	}
+
+	/**
+	 * One bound field.
+	 */
+	private static final class Slot {
+		private static final MethodHandle FIELD_SET;
+		private final Field field;
+		/**
+		 * Typed (Object) to the kind's type: int for bytes, shorts and ints, Object
+		 * for {@link Kind#OBJECT}, the primitive otherwise
+		 */
+		private final MethodHandle getter;
+		/**
+		 * Typed (Object, the field's type) to void, or (Object, Object) to void for
+		 * {@link Kind#OBJECT}
+		 */
+		private final MethodHandle setter;
+		private final String[] names;
+		private final Kind kind;
+		private final TypeAdapter<Object> adapter;
+		/**
+		 * The declared type when values are written by their runtime type, the way
+		 * Gson's reflective adapter does, otherwise null
+		 */
+		private final Type runtimeTyped;
+		private final boolean serialize;
+		private final boolean deserialize;
+		private final boolean primitive;
+		private int position;
+
+		@SuppressWarnings("unchecked")
+		private Slot(Field field, String[] names, Kind kind, TypeAdapter<?> adapter, Type runtimeTyped,
+				boolean serialize, boolean deserialize) {
+			this.field = field;
+			this.names = names;
+			this.kind = kind;
+			this.adapter = (TypeAdapter<Object>) adapter;
+			this.runtimeTyped = runtimeTyped;
+			this.serialize = serialize;
+			this.deserialize = deserialize;
+			this.primitive = field.getType().isPrimitive();
+			Class<?> valueType = kind == Kind.OBJECT ? Object.class : field.getType();
+			Class<?> readType = kind == Kind.BYTE || kind == Kind.SHORT ? int.class : valueType;
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				this.getter = getter(lookup, field).asType(MethodType.methodType(readType, Object.class));
+				this.setter = setter(lookup, field).asType(MethodType.methodType(void.class, Object.class, valueType));
+			} catch (IllegalAccessException e) {
+				throw new IllegalArgumentException("Can't bind " + field, e);
+			}
+		}
+
+		static {
+			try {
+				FIELD_SET = MethodHandles.lookup().findVirtual(Field.class, "set",
+						MethodType.methodType(void.class, Object.class, Object.class));
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		/**
+		 * Gson binds static fields too unless they're excluded, and their handles
+		 * take no receiver, so one that's ignored is added in front
+		 */
+		private static MethodHandle getter(MethodHandles.Lookup lookup, Field field) throws IllegalAccessException {
+			MethodHandle getter = lookup.unreflectGetter(field);
+			return Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(getter, 0, Object.class)
+					: getter;
+		}
+
+		/**
+		 * Lookups won't write final fields, which Gson does set, so those fall back
+		 * to {@link Field#set(Object, Object)}, which ignores the receiver of a
+		 * static one by itself
+		 */
+		private static MethodHandle setter(MethodHandles.Lookup lookup, Field field) throws IllegalAccessException {
+			if (!Modifier.isFinal(field.getModifiers())) {
+				MethodHandle setter = lookup.unreflectSetter(field);
+				return Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(setter, 0, Object.class)
+						: setter;
+			}
+			return FIELD_SET.bindTo(field).asType(MethodType.methodType(void.class, field.getDeclaringClass(),
+					field.getType()));
+		}
+
+		private void read(JsonReader in, Object target) throws Throwable {
+			if (kind == Kind.OBJECT) {
+				Object value = adapter.read(in);
+				if (value != null || !primitive)
+					setter.invokeExact(target, value);
+				return;
+			}
+			// Like Gson, a null leaves a primitive as constructed
+			JsonToken peek = in.peek();
+			if (peek == JsonToken.NULL) {
+				in.nextNull();
+				return;
+			}
+			switch (kind) {
+			case BOOLEAN:
+				setter.invokeExact(target,
+						peek == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean());
+				return;
+			case BYTE:
+				setter.invokeExact(target, (byte) nextInt(in));
+				return;
+			case SHORT:
+				setter.invokeExact(target, (short) nextInt(in));
+				return;
+			case INT:
+				setter.invokeExact(target, nextInt(in));
+				return;
+			case LONG:
+				try {
+					setter.invokeExact(target, in.nextLong());
+				} catch (NumberFormatException e) {
+					throw new JsonSyntaxException(e);
+				}
+				return;
+			case FLOAT:
+				setter.invokeExact(target, (float) in.nextDouble());
+				return;
+			case DOUBLE:
+				setter.invokeExact(target, in.nextDouble());
+				return;
+			default:
+				String value = in.nextString();
+				if (value.length() != 1)
+					throw new JsonSyntaxException("Expecting character, got: " + value);
+				setter.invokeExact(target, value.charAt(0));
+			}
+		}
+
+		private static int nextInt(JsonReader in) throws IOException {
+			try {
+				return in.nextInt();
+			} catch (NumberFormatException e) {
+				throw new JsonSyntaxException(e);
+			}
+		}
+
+		private void write(JsonWriter out, Object source, Gson gson) throws Throwable {
+			switch (kind) {
+			case BOOLEAN:
+				out.name(names[0]).value((boolean) getter.invokeExact(source));
+				return;
+			case BYTE:
+			case SHORT:
+			case INT:
+				out.name(names[0]).value((int) getter.invokeExact(source));
+				return;
+			case LONG:
+				out.name(names[0]).value((long) getter.invokeExact(source));
+				return;
+			case FLOAT:
+				float floatValue = (float) getter.invokeExact(source);
+				out.name(names[0]);
+				// Gson writes floats by their own toString, and decides on NaN and
+				// infinity by its settings
+				if (Float.isNaN(floatValue) || Float.isInfinite(floatValue))
+					adapter.write(out, floatValue);
+				else
+					out.value(Float.valueOf(floatValue));
+				return;
+			case DOUBLE:
+				double doubleValue = (double) getter.invokeExact(source);
+				out.name(names[0]);
+				if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue))
+					adapter.write(out, doubleValue);
+				else
+					out.value(doubleValue);
+				return;
+			case CHAR:
+				out.name(names[0]).value(String.valueOf((char) getter.invokeExact(source)));
+				return;
+			default:
+				Object value = (Object) getter.invokeExact(source);
+				// Gson skips a field holding the object itself
+				if (value == source)
+					return;
+				out.name(names[0]);
+				writerFor(value, gson).write(out, value);
+			}
+		}
+
+		/**
+		 * Pick between the field's adapter and the one of the value's runtime type
+		 * the same way Gson's reflective adapter does.
+		 */
+		@SuppressWarnings("unchecked")
+		private TypeAdapter<Object> writerFor(Object value, Gson gson) {
+			if (runtimeTyped == null || value == null || value.getClass() == runtimeTyped
+					|| !(runtimeTyped == Object.class || runtimeTyped instanceof TypeVariable
+							|| runtimeTyped instanceof Class))
+				return adapter;
+			TypeAdapter<Object> runtimeAdapter = (TypeAdapter<Object>) gson.getAdapter(value.getClass());
+			if (runtimeAdapter instanceof ReflectiveTypeAdapterFactory.Adapter
+					&& !(adapter instanceof ReflectiveTypeAdapterFactory.Adapter))
+				return adapter;
+			return runtimeAdapter;
+		}
+	}
+
+	/**
+	 * The adapter compiled for one class.
+	 */
+	public static final class Adapter<T> extends TypeAdapter<T> {
+		private final ObjectConstructor<T> constructor;
+		private final Slot[] slots;
+		private final Map<String, Slot> byName = new HashMap<>();
+		private final Slot[] written;
+		private final Gson gson;
+
+		private Adapter(Gson gson, ObjectConstructor<T> constructor, List<Slot> slots) {
+			this.gson = gson;
+			this.constructor = constructor;
+			this.slots = slots.toArray(new Slot[0]);
+			List<Slot> written = new ArrayList<>(slots.size());
+			for (int i = 0; i < this.slots.length; i++) {
+				Slot slot = this.slots[i];
+				slot.position = i;
+				if (slot.serialize)
+					written.add(slot);
+				for (String name : slot.names) {
+					Slot previous = byName.put(name, slot);
+					if (previous != null)
+						throw new IllegalArgumentException(slot.field.getDeclaringClass()
+								+ " declares multiple JSON fields named " + name);
+				}
+			}
+			this.written = written.toArray(new Slot[0]);
+		}
+
+		@Override
+		public T read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			T instance = constructor.construct();
+			try {
+				in.beginObject();
+				// Files are mostly written in field order, so the field after the
+				// last one read is tried before hashing the name
+				int next = 0;
+				while (in.hasNext()) {
+					String name = in.nextName();
+					Slot slot = next < slots.length && slots[next].names[0].equals(name) ? slots[next]
+							: byName.get(name);
+					if (slot == null || !slot.deserialize) {
+						in.skipValue();
+						continue;
+					}
+					slot.read(in, instance);
+					next = slot.position + 1;
+				}
+			} catch (IllegalStateException e) {
+				throw new JsonSyntaxException(e);
+			} catch (IOException | RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new AssertionError(e);
+			}
+			in.endObject();
+			return instance;
+		}
+
+		@Override
+		public void write(JsonWriter out, T value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			try {
+				for (Slot slot : written)
+					slot.write(out, value, gson);
+			} catch (IOException | RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new AssertionError(e);
+			}
+			out.endObject();
+		}
+	}
+}
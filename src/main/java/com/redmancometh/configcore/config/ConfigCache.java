@@ -0,0 +1,150 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Compiled cache of a config file, stored next to it under {@code .cache}. It
+ * holds the file's tokens in the {@link BinaryJson} encoding and is keyed by
+ * the file's content hash and a fingerprint of the config class's fields, so
+ * it's ignored as soon as either the file or the class changes.
+ *
+ * The cache holds the source tokens rather than the finished object graph:
+ * the adapters still run on load, which keeps things like world lookups in
+ * LocationAdapter live, but the lexing, number parsing and string decoding of
+ * the JSON text are skipped.
+ *
+ * @author Redmancometh
+ *
+ */
+final class ConfigCache {
+	private static final int MAGIC = 0x43434A42;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+	private static final Map<Class<?>, Long> schemaFingerprints = new ConcurrentHashMap<>();
+
+	private ConfigCache() {
+	}
+
+	static Path cachePath(Path source) {
+		return source.toAbsolutePath().getParent().resolve(".cache").resolve(source.getFileName() + ".bin");
+	}
+
+	/**
+	 * Gson can only replay the cache if it reads maps through the public reader
+	 * API, see {@link StreamingMapTypeAdapterFactory}.
+	 *
+	 * @param gson
+	 * @return
+	 */
+	static boolean supports(Gson gson) {
+		return gson.getAdapter(Map.class) instanceof StreamingMapTypeAdapterFactory.Adapter;
+	}
+
+	/**
+	 * Load the config from its cache.
+	 *
+	 * @param source     the config file
+	 * @param sourceHash content hash of the config file
+	 * @param clazz
+	 * @param gson
+	 * @return the config, or null if there's no cache or it doesn't match
+	 */
+	static <T> T load(Path source, long sourceHash, Class<?> clazz, Gson gson) {
+		Path cacheFile = cachePath(source);
+		if (!Files.isRegularFile(cacheFile))
+			return null;
+		try {
+			// cache files are small, and a mapping would keep the file locked on
+			// Windows until it's collected, failing the move in store
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile));
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+					|| buffer.getLong() != sourceHash || buffer.getLong() != schemaFingerprint(clazz))
+				return null;
+			return gson.fromJson(new BinaryJsonReader(buffer), clazz);
+		} catch (IOException | RuntimeException e) {
+			ConfigMetrics.of(source).cacheIgnored(cacheFile, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the cache for a config file that just parsed successfully.
+	 *
+	 * @param source     the config file
+	 * @param data       the content it was parsed from
+	 * @param sourceHash content hash of data
+	 * @param clazz
+	 * @throws IOException
+	 */
+	static void store(Path source, ConfigSource data, long sourceHash, Class<?> clazz) throws IOException {
+		JsonReader in = new JsonReader(data.reader());
+		// Gson parses configs leniently, so the cache has to accept the same input
+		in.setLenient(true);
+		byte[] body = BinaryJson.encode(in);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).putLong(sourceHash)
+				.putLong(schemaFingerprint(clazz));
+		Path cacheFile = cachePath(source);
+		Files.createDirectories(cacheFile.getParent());
+		Path temp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			header.flip();
+			channel.write(new ByteBuffer[] { header, ByteBuffer.wrap(body) });
+		}
+		Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	static long schemaFingerprint(Class<?> clazz) {
+		return schemaFingerprints.computeIfAbsent(clazz, (key) -> {
+			StringBuilder schema = new StringBuilder();
+			describe(key, schema, new HashSet<>());
+			return XXHash64.hash(schema.toString().getBytes(StandardCharsets.UTF_8));
+		});
+	}
+
+	private static void describe(Type type, StringBuilder schema, Set<Class<?>> seen) {
+		if (type instanceof ParameterizedType) {
+			describe(((ParameterizedType) type).getRawType(), schema, seen);
+			for (Type argument : ((ParameterizedType) type).getActualTypeArguments())
+				describe(argument, schema, seen);
+			return;
+		}
+		if (!(type instanceof Class))
+			return;
+		Class<?> clazz = (Class<?>) type;
+		if (clazz.isArray()) {
+			describe(clazz.getComponentType(), schema, seen);
+			return;
+		}
+		if (clazz.isPrimitive() || clazz.getName().startsWith("java.") || !seen.add(clazz))
+			return;
+		schema.append(clazz.getName()).append('{');
+		for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+				schema.append(field.getModifiers()).append(' ').append(field.getGenericType().getTypeName())
+						.append(' ').append(field.getName()).append(';');
+				describe(field.getGenericType(), schema, seen);
+			}
+		}
+		schema.append('}');
+	}
+}
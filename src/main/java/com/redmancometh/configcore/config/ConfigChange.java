@@ -0,0 +1,84 @@
+package com.redmancometh.configcore.config;
+
+import java.lang.reflect.Type;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * One difference between the previous and the new contents of a config file.
+ * The path uses the names as they are written in the file, like
+ * {@code shops.weapons[3].price}; the empty path is the whole file.
+ *
+ * @author Redmancometh
+ *
+ */
+@Getter
+public final class ConfigChange {
+	public enum Kind {
+		ADDED, REMOVED, CHANGED
+	}
+
+	private final Kind kind;
+	private final String path;
+	/**
+	 * The JSON before the change, null if it was added
+	 */
+	private final JsonElement oldJson;
+	/**
+	 * The JSON after the change, null if it was removed
+	 */
+	private final JsonElement newJson;
+	@Getter(AccessLevel.NONE)
+	private final Gson gson;
+
+	ConfigChange(Kind kind, String path, JsonElement oldJson, JsonElement newJson, Gson gson) {
+		this.kind = kind;
+		this.path = path;
+		this.oldJson = oldJson;
+		this.newJson = newJson;
+		this.gson = gson;
+	}
+
+	/**
+	 * @param type
+	 * @return the old value read as the given type, with the config's adapters
+	 */
+	public <V> V getOldValue(Type type) {
+		return oldJson == null ? null : gson.fromJson(oldJson, type);
+	}
+
+	public <V> V getNewValue(Type type) {
+		return newJson == null ? null : gson.fromJson(newJson, type);
+	}
+
+	/**
+	 * Whether this change touches the given path: it is the path, something
+	 * under it, or something above it that was replaced as a whole.
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public boolean affects(String prefix) {
+		return within(path, prefix) || within(prefix, path);
+	}
+
+	private static boolean within(String path, String parent) {
+		if (parent.isEmpty())
+			return true;
+		if (!path.startsWith(parent))
+			return false;
+		if (path.length() == parent.length())
+			return true;
+		char next = path.charAt(parent.length());
+		return next == '.' || next == '[';
+	}
+
+	@Override
+	public String toString() {
+		return (path.isEmpty() ? "<root>" : path) + " " + kind.name().toLowerCase();
+	}
+}
@@ -0,0 +1,13 @@
+package com.redmancometh.configcore.config;
+
+/**
+ * Told about the parts of a config that changed in a reload. See
+ * {@link ConfigManager#addChangeListener(String, ConfigChangeListener)}.
+ *
+ * @author Redmancometh
+ *
+ */
+@FunctionalInterface
+public interface ConfigChangeListener {
+	void onChange(ConfigChange change);
+}
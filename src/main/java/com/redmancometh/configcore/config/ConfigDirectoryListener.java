@@ -0,0 +1,21 @@
+package com.redmancometh.configcore.config;
+
+/**
+ * Told about files of a {@link ConfigDirectoryManager} coming, changing and
+ * going after it was loaded. Implement whichever you need.
+ *
+ * @author Redmancometh
+ *
+ * @param <K>
+ * @param <T>
+ */
+public interface ConfigDirectoryListener<K, T> {
+	default void onAdded(K key, T config) {
+	}
+
+	default void onChanged(K key, T previous, T config) {
+	}
+
+	default void onRemoved(K key, T previous) {
+	}
+}
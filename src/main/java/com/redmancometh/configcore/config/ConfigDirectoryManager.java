@@ -0,0 +1,228 @@
+package com.redmancometh.configcore.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.redmancometh.configcore.config.validation.ValidationScope;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One config per file in a folder under config/, like one JSON per arena, kit
+ * or quest. Every file is parsed in parallel on the config I/O pool at load;
+ * afterwards a {@link DirectoryWatcher} reparses only the file that changed,
+ * and files showing up or going away are added to and removed from the map.
+ *
+ * Keys come from the file's path relative to the folder, without the
+ * extension and with / between directories: {@code arenas/castle.json} in the
+ * folder {@code arenas} is {@code castle}, {@code arenas/pvp/pit.json} is
+ * {@code pvp/pit}.
+ *
+ * @author Redmancometh
+ *
+ * @param <K>
+ * @param <T>
+ */
+public class ConfigDirectoryManager<K, T> {
+	private final Path directory;
+	private final Class<T> clazz;
+	private final Function<String, K> keyMapper;
+	private final String[] extensions;
+	@Getter
+	@Setter
+	private Gson gson = GsonRegistry.standard();
+	private final Map<K, T> configs = new ConcurrentHashMap<>();
+	private final Map<Path, K> keys = new ConcurrentHashMap<>();
+	private final List<ConfigDirectoryListener<K, T>> listeners = new CopyOnWriteArrayList<>();
+	private DirectoryWatcher watcher;
+
+	/**
+	 * @param folder     the folder under config/
+	 * @param clazz
+	 * @param keyMapper  turns a file's name into its key
+	 * @param extensions the extensions of the files to load, json if none given
+	 */
+	public ConfigDirectoryManager(String folder, Class<T> clazz, Function<String, K> keyMapper,
+			String... extensions) {
+		this.directory = Paths.get("config", folder).toAbsolutePath().normalize();
+		this.clazz = clazz;
+		this.keyMapper = keyMapper;
+		this.extensions = extensions.length == 0 ? new String[] { "json" } : extensions;
+	}
+
+	/**
+	 * A manager keyed by file name.
+	 *
+	 * @param folder
+	 * @param clazz
+	 * @return
+	 */
+	public static <T> ConfigDirectoryManager<String, T> byName(String folder, Class<T> clazz) {
+		return new ConfigDirectoryManager<>(folder, clazz, Function.identity());
+	}
+
+	/**
+	 * Load every file, waiting for all of them, then start watching the folder.
+	 */
+	public void init() {
+		initAsync().join();
+	}
+
+	/**
+	 * Load every file in parallel on the config I/O pool, then start watching the
+	 * folder. Files that fail to parse are left out. Listeners aren't told about
+	 * the files loaded here.
+	 *
+	 * @return completes with the loaded configs
+	 */
+	public CompletableFuture<Map<K, T>> initAsync() {
+		watcher = new DirectoryWatcher(this::changed, this::deleted, directory.toString(), extensions);
+		Collection<File> files = Files.isDirectory(directory)
+				? FileUtils.listFiles(directory.toFile(), extensions, true)
+				: Collections.emptyList();
+		List<CompletableFuture<Void>> loads = new ArrayList<>(files.size());
+		for (File file : files) {
+			loads.add(CompletableFuture.runAsync(() -> {
+				watcher.prime(file);
+				load(file, false);
+			}, ConfigExecutors.io()));
+		}
+		return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).thenApply((ignored) -> {
+			watcher.start();
+			return getConfigs();
+		});
+	}
+
+	/**
+	 * Stop watching the folder. The loaded configs stay.
+	 */
+	public void stop() {
+		if (watcher != null)
+			watcher.stop();
+	}
+
+	public void addListener(ConfigDirectoryListener<K, T> listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ConfigDirectoryListener<K, T> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return a live, read-only view of the loaded configs
+	 */
+	public Map<K, T> getConfigs() {
+		return Collections.unmodifiableMap(configs);
+	}
+
+	public T get(K key) {
+		return configs.get(key);
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the statistics of the whole folder: every file's parses, reloads
+	 *         and failures, and the watcher's ticks
+	 */
+	public ConfigMetrics getMetrics() {
+		return ConfigMetrics.of(directory);
+	}
+
+	private void changed(File file) {
+		getMetrics().changeDetected();
+		load(file, true);
+	}
+
+	private void deleted(File file) {
+		K key = keys.remove(normalize(file));
+		if (key == null)
+			return;
+		T previous = configs.remove(key);
+		if (previous == null)
+			return;
+		for (ConfigDirectoryListener<K, T> listener : listeners) {
+			try {
+				listener.onRemoved(key, previous);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void load(File file, boolean notify) {
+		Path path = normalize(file);
+		ConfigMetrics metrics = getMetrics();
+		T config;
+		long parseNanos;
+		try {
+			ConfigSource source = ConfigSource.read(path);
+			metrics.read(source.size());
+			long start = System.nanoTime();
+			try (Reader in = source.reader(); ValidationScope validation = ValidationScope.open()) {
+				config = parse(in);
+				validation.throwIfInvalid();
+			}
+			parseNanos = System.nanoTime() - start;
+			metrics.parsed(parseNanos);
+			if (config == null)
+				throw new JsonParseException(path + " is empty");
+		} catch (IOException | JsonParseException e) {
+			metrics.failed(path, notify, e);
+			return;
+		}
+		K key = keyFor(path);
+		keys.put(path, key);
+		T previous = configs.put(key, config);
+		metrics.published(path, notify, parseNanos);
+		if (!notify)
+			return;
+		for (ConfigDirectoryListener<K, T> listener : listeners) {
+			try {
+				if (previous == null)
+					listener.onAdded(key, config);
+				else
+					listener.onChanged(key, previous, config);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	protected T parse(Reader in) throws IOException {
+		return gson.fromJson(in, clazz);
+	}
+
+	private K keyFor(Path file) {
+		String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+		int extension = name.lastIndexOf('.');
+		if (extension > name.lastIndexOf('/'))
+			name = name.substring(0, extension);
+		return keyMapper.apply(name);
+	}
+
+	private static Path normalize(File file) {
+		return file.toPath().toAbsolutePath().normalize();
+	}
+}
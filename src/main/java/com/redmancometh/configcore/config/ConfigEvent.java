@@ -0,0 +1,63 @@
+package com.redmancometh.configcore.config;
+
+import java.nio.file.Path;
+
+import lombok.Getter;
+
+/**
+ * Something that happened to a config file: it was loaded or reloaded, it was
+ * rejected, its defaults were copied out. Delivered to every
+ * {@link ConfigEventListener} registered with {@link ConfigMetrics}.
+ *
+ * @author Redmancometh
+ *
+ */
+@Getter
+public class ConfigEvent {
+	public enum Kind {
+		LOADED, RELOADED, LOAD_FAILED, RELOAD_FAILED, CACHE_IGNORED, DEFAULTS_COPIED
+	}
+
+	private final Kind kind;
+	/**
+	 * The metrics of the config (or config folder) this happened to
+	 */
+	private final ConfigMetrics metrics;
+	private final Path file;
+	/**
+	 * How long parsing took, for loads and reloads
+	 */
+	private final long parseNanos;
+	/**
+	 * Why it failed, for failures and ignored caches
+	 */
+	private final Throwable error;
+
+	ConfigEvent(Kind kind, ConfigMetrics metrics, Path file, long parseNanos, Throwable error) {
+		this.kind = kind;
+		this.metrics = metrics;
+		this.file = file;
+		this.parseNanos = parseNanos;
+		this.error = error;
+	}
+
+	@Override
+	public String toString() {
+		switch (kind) {
+		case LOADED:
+			return String.format("Loaded %s in %.1f ms", file, parseNanos / 1e6);
+		case RELOADED:
+			return String.format("Reloaded %s in %.1f ms", file, parseNanos / 1e6);
+		case LOAD_FAILED:
+			return "Failed to load " + file + ": " + error;
+		case RELOAD_FAILED:
+			return "Rejected reload of " + file + ": " + error.getMessage();
+		case CACHE_IGNORED:
+			return "Ignoring config cache " + file + ": " + error;
+		case DEFAULTS_COPIED:
+			return "Copied defaults to " + file;
+		default:
+			return kind + " " + file;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.redmancometh.configcore.config;
+
+/**
+ * Receives every {@link ConfigEvent}. Register with
+ * {@link ConfigMetrics#addListener(ConfigEventListener)}; listeners run on
+ * whichever thread the event happened on, so keep them short.
+ *
+ * @author Redmancometh
+ *
+ */
+@FunctionalInterface
+public interface ConfigEventListener {
+	/**
+	 * Prints reloads, failures, ignored caches and copied defaults to stdout.
+	 * Registered by default unless {@code -Dconfigcore.quiet=true} is set; remove
+	 * it to route those messages somewhere else.
+	 */
+	ConfigEventListener CONSOLE = (event) -> {
+		if (event.getKind() == ConfigEvent.Kind.LOADED)
+			return;
+		System.out.println(event);
+		if (event.getKind() == ConfigEvent.Kind.LOAD_FAILED)
+			event.getError().printStackTrace();
+	};
+
+	void onEvent(ConfigEvent event);
+}
@@ -0,0 +1,267 @@
+package com.redmancometh.configcore.config;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import com.redmancometh.configcore.ConfigCore;
+
+/**
+ * Shared executors for background config work. Threads are daemons so a
+ * forgotten shutdown can't keep the JVM alive, and {@link #shutdown()} is
+ * called from ConfigCore's onDisable.
+ *
+ * {@code -Dconfigcore.executor} picks what the I/O pool and the workers run
+ * on: {@code platform} threads, {@code virtual} threads, or {@code auto} (the
+ * default), which uses virtual threads when the JVM has them and platform
+ * threads otherwise. Virtual threads are looked up reflectively, so this still
+ * runs on Java 8.
+ *
+ * Reloads and their onReload hooks run on a {@link #lane()} per config, on top
+ * of the workers, so a slow hook only holds up its own config.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class ConfigExecutors {
+	private static final int IO_THREADS = Integer.getInteger("configcore.io.threads",
+			Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+	private static final int WORKER_THREADS = Integer.getInteger("configcore.workers.threads", 8);
+	private static final long SHUTDOWN_GRACE = Long.getLong("configcore.shutdownGrace", 1000);
+	private static final boolean VIRTUAL = useVirtualThreads(System.getProperty("configcore.executor", "auto"));
+	private static ScheduledExecutorService scheduler;
+	private static ExecutorService io;
+	private static ExecutorService workers;
+
+	private ConfigExecutors() {
+	}
+
+	/**
+	 * Single thread used for timing work like reload debouncing. Don't block it.
+	 *
+	 * @return
+	 */
+	public static synchronized ScheduledExecutorService scheduler() {
+		if (scheduler == null || scheduler.isShutdown())
+			scheduler = Executors.newSingleThreadScheduledExecutor(daemonFactory("ConfigCore-Scheduler"));
+		return scheduler;
+	}
+
+	/**
+	 * Bounded pool for reading and parsing config files. Idle threads time out, so
+	 * it costs nothing between loads.
+	 *
+	 * @return
+	 */
+	public static synchronized ExecutorService io() {
+		if (io == null || io.isShutdown()) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), threadFactory("ConfigCore-IO"));
+			pool.allowCoreThreadTimeOut(true);
+			io = pool;
+		}
+		return io;
+	}
+
+	/**
+	 * Runs reloads, onReload hooks, folder scans and deferred saves. A new virtual
+	 * thread per task on the virtual backend, otherwise a pool of up to
+	 * {@code configcore.workers.threads} (8 by default) threads that time out when
+	 * idle. Mostly used through {@link #lane()}.
+	 *
+	 * @return
+	 */
+	public static synchronized ExecutorService workers() {
+		if (workers == null || workers.isShutdown()) {
+			workers = VIRTUAL ? newThreadPerTaskExecutor(threadFactory("ConfigCore-Worker")) : null;
+			if (workers == null) {
+				ThreadPoolExecutor pool = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 30, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(), daemonFactory("ConfigCore-Worker"));
+				pool.allowCoreThreadTimeOut(true);
+				workers = pool;
+			}
+		}
+		return workers;
+	}
+
+	/**
+	 * An executor that runs its tasks one at a time, in order, on the workers.
+	 * Tasks of different lanes run in parallel, so whatever blocks in one lane
+	 * doesn't hold up the others.
+	 *
+	 * @return
+	 */
+	public static Executor lane() {
+		return new Lane();
+	}
+
+	/**
+	 * @return whether the I/O pool and workers run on virtual threads
+	 */
+	public static boolean isVirtual() {
+		return VIRTUAL;
+	}
+
+	/**
+	 * Runs tasks on the server main thread through the Bukkit scheduler, or right
+	 * away if already on it (or if there's no server, e.g. in tests).
+	 *
+	 * @return
+	 */
+	public static Executor mainThread() {
+		return (task) -> {
+			if (Bukkit.getServer() == null || Bukkit.isPrimaryThread()) {
+				task.run();
+				return;
+			}
+			Bukkit.getScheduler().runTask(JavaPlugin.getPlugin(ConfigCore.class), task);
+		};
+	}
+
+	/**
+	 * Stop every executor. Pending debounces and deferred saves are dropped;
+	 * reloads and parses already queued get {@code configcore.shutdownGrace}
+	 * milliseconds (1000 by default) to finish before they're interrupted.
+	 */
+	public static void shutdown() {
+		ExecutorService stoppedIo;
+		ExecutorService stoppedWorkers;
+		synchronized (ConfigExecutors.class) {
+			if (scheduler != null) {
+				scheduler.shutdownNow();
+				scheduler = null;
+			}
+			stoppedIo = io;
+			stoppedWorkers = workers;
+			io = null;
+			workers = null;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_GRACE);
+		for (ExecutorService executor : new ExecutorService[] { stoppedWorkers, stoppedIo }) {
+			if (executor == null)
+				continue;
+			executor.shutdown();
+			try {
+				if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+					executor.shutdownNow();
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static boolean useVirtualThreads(String backend) {
+		if (backend.equalsIgnoreCase("platform"))
+			return false;
+		boolean available = virtualFactory("ConfigCore-Probe") != null;
+		if (!available && backend.equalsIgnoreCase("virtual"))
+			logger().warning("Virtual threads aren't available on this JVM, using platform threads for config work");
+		return available;
+	}
+
+	/**
+	 * The server's logger, or a plain JUL logger when there's no server yet.
+	 */
+	private static Logger logger() {
+		return Bukkit.getServer() != null ? Bukkit.getLogger() : Logger.getLogger("ConfigCore");
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		ThreadFactory factory = VIRTUAL ? virtualFactory(name) : null;
+		return factory != null ? factory : daemonFactory(name);
+	}
+
+	/**
+	 * {@code Thread.ofVirtual().name(name + "-", 1).factory()}, or null before
+	 * Java 21 or with virtual threads still in preview.
+	 */
+	private static ThreadFactory virtualFactory(String name) {
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+			ofVirtual = builder.getMethod("name", String.class, long.class).invoke(ofVirtual, name + "-", 1L);
+			return (ThreadFactory) builder.getMethod("factory").invoke(ofVirtual);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, factory);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static ThreadFactory daemonFactory(String name) {
+		AtomicInteger counter = new AtomicInteger();
+		return (runnable) -> {
+			Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Runs its tasks in order, at most one at a time, by draining its queue on
+	 * one worker task at a time. It looks the workers up on every drain, so it
+	 * keeps working after a shutdown and restart.
+	 */
+	private static final class Lane implements Executor {
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+		private boolean draining;
+
+		@Override
+		public void execute(Runnable task) {
+			synchronized (this) {
+				tasks.add(task);
+				if (draining)
+					return;
+				draining = true;
+			}
+			try {
+				workers().execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				synchronized (this) {
+					tasks.clear();
+					draining = false;
+				}
+				throw e;
+			}
+		}
+
+		private void drain() {
+			while (true) {
+				Runnable task;
+				synchronized (this) {
+					task = tasks.poll();
+					if (task == null) {
+						draining = false;
+						return;
+					}
+				}
+				try {
+					task.run();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,444 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * A config read from several layers merged over each other, like the defaults
+ * bundled in the jar, then a file shared by every server of a network, then
+ * the server's own file:
+ *
+ * <pre>
+ * manager.setLayers(ConfigLayers.standard(MyPlugin.class, "shop.json", Paths.get("/mnt/network/config")));
+ * </pre>
+ *
+ * Objects are merged key by key, all the way down; anything else (values,
+ * arrays and nulls) in a higher layer replaces what's under it as a whole.
+ * A missing file is an empty layer, so keys added to the defaults in an update
+ * show up on every server without touching its files.
+ *
+ * Each layer is only parsed again when its content changes, and the merge of
+ * each combination of layer contents is kept, so going back to one (like a
+ * file edited and then reverted) costs nothing. When a layer changes, only the
+ * parts of the merge whose inputs changed are merged again; everything else
+ * is the same {@link JsonElement} as before, which the manager's change
+ * detection picks up on.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class ConfigLayers {
+	private static final int CACHED_MERGES = 8;
+	private final List<Layer> layers = new ArrayList<>();
+	/**
+	 * The merge of the last layer contents read, at every object in it
+	 */
+	private final MergeNode root = new MergeNode();
+	/**
+	 * Merged trees by the fingerprint of the layer contents they're from
+	 */
+	private final Map<Long, JsonElement> merges = new LinkedHashMap<Long, JsonElement>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, JsonElement> eldest) {
+			return size() > CACHED_MERGES;
+		}
+	};
+
+	/**
+	 * The jar's copy of the file as the base, then {@code sharedDirectory}'s copy,
+	 * then the one in the config directory.
+	 *
+	 * @param owner           a class of the plugin the defaults are bundled with
+	 * @param fileName
+	 * @param sharedDirectory where the network's copy is, or null for none
+	 * @return
+	 */
+	public static ConfigLayers standard(Class<?> owner, String fileName, Path sharedDirectory) {
+		ConfigLayers layers = new ConfigLayers().resource(owner, fileName);
+		if (sharedDirectory != null)
+			layers.file(sharedDirectory.resolve(fileName));
+		return layers.file(Paths.get("config", fileName));
+	}
+
+	/**
+	 * Add a layer read from the classpath, above the ones added so far. It's read
+	 * once, since it can't change while the plugin runs.
+	 *
+	 * @param owner a class whose class loader has the resource
+	 * @param name  the resource, relative to the root of the jar
+	 * @return this
+	 */
+	public synchronized ConfigLayers resource(Class<?> owner, String name) {
+		layers.add(new ResourceLayer(owner, name.startsWith("/") ? name : "/" + name));
+		return this;
+	}
+
+	/**
+	 * Add a layer read from a file, above the ones added so far. The topmost file
+	 * is where a layered manager saves to.
+	 *
+	 * @param file
+	 * @return this
+	 */
+	public synchronized ConfigLayers file(Path file) {
+		layers.add(new FileLayer(file));
+		return this;
+	}
+
+	/**
+	 * @return the files of the file layers, bottom first
+	 */
+	public synchronized List<Path> getFiles() {
+		List<Path> files = new ArrayList<>();
+		for (Layer layer : layers) {
+			if (layer instanceof FileLayer)
+				files.add(((FileLayer) layer).file);
+		}
+		return files;
+	}
+
+	/**
+	 * Read every layer and merge them.
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws JsonParseException if a layer doesn't parse
+	 */
+	public synchronized Merged read() throws IOException {
+		ByteBuffer fingerprints = ByteBuffer.allocate(layers.size() * 8);
+		long size = 0;
+		for (Layer layer : layers) {
+			size += layer.refresh();
+			fingerprints.putLong(layer.fingerprint);
+		}
+		fingerprints.flip();
+		long fingerprint = XXHash64.hash(fingerprints, 0);
+		JsonElement tree = merges.get(fingerprint);
+		if (tree == null) {
+			JsonElement[] inputs = new JsonElement[layers.size()];
+			for (int i = 0; i < inputs.length; i++)
+				inputs[i] = layers.get(i).tree;
+			tree = merge(root, inputs);
+			if (tree == null)
+				tree = JsonNull.INSTANCE;
+			merges.put(fingerprint, tree);
+		}
+		return new Merged(tree, fingerprint, size);
+	}
+
+	/**
+	 * What a config has to set in the top layer to end up as the given tree, for
+	 * saving: only the values that differ from the layers under it.
+	 *
+	 * @param full the whole config
+	 * @return
+	 * @throws IOException
+	 */
+	public synchronized JsonElement overrides(JsonElement full) throws IOException {
+		JsonElement below = null;
+		for (int i = 0; i < layers.size() - 1; i++) {
+			Layer layer = layers.get(i);
+			layer.refresh();
+			below = overlay(below, layer.tree);
+		}
+		JsonElement overrides = difference(full, below);
+		return overrides == null ? new JsonObject() : overrides;
+	}
+
+	/**
+	 * Merge the layers' values at one place in the tree, reusing what was merged
+	 * there last time wherever the values are the same ones as then.
+	 *
+	 * @param node   what was merged there last time
+	 * @param inputs each layer's value there, bottom first, null where it has none
+	 * @return the merged value, or null if no layer has one
+	 */
+	private static JsonElement merge(MergeNode node, JsonElement[] inputs) {
+		if (node.inputs != null && sameElements(node.inputs, inputs))
+			return node.output;
+		int top = inputs.length - 1;
+		while (top >= 0 && inputs[top] == null)
+			top--;
+		JsonElement output;
+		if (top < 0 || !inputs[top].isJsonObject()) {
+			output = top < 0 ? null : inputs[top];
+			node.members = null;
+		} else {
+			// Objects merge down to the first layer that has something else here
+			int bottom = top;
+			while (bottom > 0 && (inputs[bottom - 1] == null || inputs[bottom - 1].isJsonObject()))
+				bottom--;
+			Set<String> keys = new LinkedHashSet<>();
+			for (int i = bottom; i <= top; i++) {
+				if (inputs[i] != null)
+					keys.addAll(inputs[i].getAsJsonObject().keySet());
+			}
+			Map<String, MergeNode> members = node.members == null ? new HashMap<>() : node.members;
+			members.keySet().retainAll(keys);
+			JsonObject previous = node.output != null && node.output.isJsonObject() ? node.output.getAsJsonObject()
+					: null;
+			boolean unchanged = previous != null && previous.size() == keys.size();
+			Map<String, JsonElement> merged = new LinkedHashMap<>();
+			JsonElement[] memberInputs = new JsonElement[inputs.length];
+			for (String key : keys) {
+				for (int i = 0; i < inputs.length; i++)
+					memberInputs[i] = i < bottom || inputs[i] == null ? null : inputs[i].getAsJsonObject().get(key);
+				JsonElement value = merge(members.computeIfAbsent(key, (name) -> new MergeNode()), memberInputs);
+				merged.put(key, value);
+				unchanged = unchanged && previous.get(key) == value;
+			}
+			if (unchanged) {
+				output = previous;
+			} else {
+				JsonObject object = new JsonObject();
+				merged.forEach(object::add);
+				output = object;
+			}
+			node.members = members;
+		}
+		node.inputs = inputs.clone();
+		node.output = output;
+		return output;
+	}
+
+	private static boolean sameElements(JsonElement[] a, JsonElement[] b) {
+		if (a.length != b.length)
+			return false;
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != b[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A plain merge of one layer over another, for {@link #overrides(JsonElement)}
+	 */
+	private static JsonElement overlay(JsonElement under, JsonElement over) {
+		if (over == null)
+			return under;
+		if (under == null || !under.isJsonObject() || !over.isJsonObject())
+			return over;
+		JsonObject merged = new JsonObject();
+		under.getAsJsonObject().entrySet().forEach((member) -> merged.add(member.getKey(), member.getValue()));
+		for (Map.Entry<String, JsonElement> member : over.getAsJsonObject().entrySet())
+			merged.add(member.getKey(), overlay(merged.get(member.getKey()), member.getValue()));
+		return merged;
+	}
+
+	/**
+	 * @return the parts of {@code full} that {@code below} doesn't already have,
+	 *         or null if it has all of them
+	 */
+	private static JsonElement difference(JsonElement full, JsonElement below) {
+		if (full.equals(below))
+			return null;
+		if (below == null || !full.isJsonObject() || !below.isJsonObject())
+			return full;
+		JsonObject difference = new JsonObject();
+		JsonObject under = below.getAsJsonObject();
+		for (Map.Entry<String, JsonElement> member : full.getAsJsonObject().entrySet()) {
+			JsonElement value = difference(member.getValue(), under.get(member.getKey()));
+			if (value != null)
+				difference.add(member.getKey(), value);
+		}
+		return difference;
+	}
+
+	/**
+	 * Make a freshly parsed tree reuse every part of the previous tree of the same
+	 * layer that it's equal to, so the merge sees those parts as unchanged.
+	 *
+	 * @return the previous tree if the two are equal, otherwise the new one
+	 */
+	private static JsonElement share(JsonElement previous, JsonElement parsed) {
+		if (previous == null || parsed == null)
+			return parsed;
+		if (previous.isJsonObject() && parsed.isJsonObject()) {
+			JsonObject before = previous.getAsJsonObject();
+			JsonObject after = parsed.getAsJsonObject();
+			boolean same = before.size() == after.size();
+			Iterator<String> order = before.keySet().iterator();
+			for (Map.Entry<String, JsonElement> member : after.entrySet()) {
+				JsonElement old = before.get(member.getKey());
+				JsonElement value = share(old, member.getValue());
+				member.setValue(value);
+				same &= old == value && order.hasNext() && order.next().equals(member.getKey());
+			}
+			return same ? previous : parsed;
+		}
+		if (previous.isJsonArray() && parsed.isJsonArray()) {
+			JsonArray before = previous.getAsJsonArray();
+			JsonArray after = parsed.getAsJsonArray();
+			boolean same = before.size() == after.size();
+			for (int i = 0; i < after.size(); i++) {
+				JsonElement old = i < before.size() ? before.get(i) : null;
+				JsonElement value = share(old, after.get(i));
+				after.set(i, value);
+				same &= old == value;
+			}
+			return same ? previous : parsed;
+		}
+		return previous.equals(parsed) ? previous : parsed;
+	}
+
+	/**
+	 * The merged tree of a {@link #read()}
+	 *
+	 * @author Redmancometh
+	 *
+	 */
+	public static final class Merged {
+		private final JsonElement tree;
+		private final long fingerprint;
+		private final long size;
+
+		private Merged(JsonElement tree, long fingerprint, long size) {
+			this.tree = tree;
+			this.fingerprint = fingerprint;
+			this.size = size;
+		}
+
+		/**
+		 * @return the merged tree, JsonNull if every layer is missing. Shared with
+		 *         later reads, so don't change it.
+		 */
+		public JsonElement getTree() {
+			return tree;
+		}
+
+		/**
+		 * @return a hash of the contents of every layer
+		 */
+		public long getFingerprint() {
+			return fingerprint;
+		}
+
+		/**
+		 * @return how many bytes the layers take together
+		 */
+		public long getSize() {
+			return size;
+		}
+	}
+
+	private static final class MergeNode {
+		private JsonElement[] inputs;
+		private JsonElement output;
+		private Map<String, MergeNode> members;
+	}
+
+	private abstract static class Layer {
+		private long fingerprint;
+		/**
+		 * Null while the layer is missing
+		 */
+		private JsonElement tree;
+
+		/**
+		 * Read the layer again, parsing it only if it changed.
+		 *
+		 * @return how many bytes it takes
+		 */
+		long refresh() throws IOException {
+			ConfigSource data = load();
+			long next = data == null ? 0 : data.fingerprint();
+			if (tree == null || next != fingerprint) {
+				JsonElement parsed = null;
+				if (data != null) {
+					try (Reader in = data.reader()) {
+						parsed = JsonParser.parseReader(in);
+					} catch (JsonParseException e) {
+						throw new JsonParseException("Couldn't parse the config layer " + this, e);
+					}
+				}
+				tree = share(tree, parsed == null || parsed.isJsonNull() ? null : parsed);
+				fingerprint = next;
+			}
+			return data == null ? 0 : data.size();
+		}
+
+		/**
+		 * @return the content, or null if the layer is missing
+		 */
+		abstract ConfigSource load() throws IOException;
+	}
+
+	private static final class FileLayer extends Layer {
+		private final Path file;
+
+		private FileLayer(Path file) {
+			this.file = file;
+		}
+
+		@Override
+		ConfigSource load() throws IOException {
+			try {
+				return ConfigSource.read(file);
+			} catch (NoSuchFileException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return file.toString();
+		}
+	}
+
+	private static final class ResourceLayer extends Layer {
+		private final Class<?> owner;
+		private final String name;
+		private ConfigSource data;
+		private boolean loaded;
+
+		private ResourceLayer(Class<?> owner, String name) {
+			this.owner = owner;
+			this.name = name;
+		}
+
+		@Override
+		ConfigSource load() throws IOException {
+			if (!loaded) {
+				URL url = owner.getResource(name);
+				if (url != null) {
+					try (InputStream in = url.openStream()) {
+						data = ConfigSource.of(IOUtils.toByteArray(in));
+					}
+				}
+				loaded = true;
+			}
+			return data;
+		}
+
+		@Override
+		public String toString() {
+			return owner.getName() + ":" + name;
+		}
+	}
+}
@@ -1,15 +1,26 @@
 package com.redmancometh.configcore.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.Reader;
-import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.Effect;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -21,11 +32,16 @@ import org.bukkit.potion.PotionEffectType;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
+import com.redmancometh.configcore.config.validation.ValidationScope;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
@@ -42,11 +58,84 @@ public class ConfigManager<T> {
 	protected Gson gson;
 	protected String fileName;
 	protected Class clazz;
-	protected T config;
+	private final AtomicReference<ConfigSnapshot<T>> snapshot = new AtomicReference<>();
 	private FileWatcher watcher;
 	@Getter
 	@Setter
 	private Runnable onReload;
+	/**
+	 * Opt-in: run onReload on the main thread through {@link MainThreadQueue},
+	 * within its per-tick budget, instead of on the thread that reloaded.
+	 */
+	private boolean onReloadOnMainThread;
+	@Getter(AccessLevel.NONE)
+	private final List<ReloadSubscription<T>> reloadListeners = new CopyOnWriteArrayList<>();
+	/**
+	 * How long the file has to stay quiet before a change is reloaded, so
+	 * truncate/write/rename sequences only cause a single parse.
+	 */
+	@Getter
+	private long reloadDebounce = 250;
+	private Debouncer reloadDebouncer;
+	/**
+	 * Where watcher-triggered reloads (and so onReload) and deferred saves run,
+	 * one at a time, without holding up other configs.
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final Executor lane = ConfigExecutors.lane();
+	/**
+	 * Opt-in: keep a compiled copy of the file under config/.cache and load that
+	 * instead of the JSON while the file is unchanged.
+	 */
+	private boolean binaryCache;
+	/**
+	 * How long {@link #saveLater()} waits before writing, in milliseconds. Every
+	 * save requested in that window goes out as one write.
+	 */
+	private long writeBehind = 1000;
+	private final AtomicBoolean savePending = new AtomicBoolean();
+	/**
+	 * Every manager with a {@link #saveLater()} still waiting on the scheduler,
+	 * whether or not it was registered with ConfigCore. Identity based, since
+	 * managers are {@code @Data}.
+	 */
+	private static final Set<ConfigManager<?>> pendingSaves = Collections
+			.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<>()));
+	@Getter(AccessLevel.NONE)
+	private final List<ChangeSubscription> changeListeners = new CopyOnWriteArrayList<>();
+	@Getter(AccessLevel.NONE)
+	private final List<ConfigTreeListener> treeListeners = new CopyOnWriteArrayList<>();
+	/**
+	 * The JSON tree the live config was built from, kept while change listeners
+	 * are registered so the next reload can be diffed against it.
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private volatile Baseline<T> baseline;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private SubtreeMerger merger;
+	@Getter(AccessLevel.NONE)
+	private final List<DerivedView<T, ?>> views = new CopyOnWriteArrayList<>();
+	/**
+	 * Where the config is merged from instead of its file alone, if set. See
+	 * {@link #setLayers(ConfigLayers)}.
+	 */
+	private ConfigLayers layers;
+	/**
+	 * Watchers of the layer files other than the config's own
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final List<FileWatcher> layerWatchers = new ArrayList<>();
+	/**
+	 * Content to load instead of reading the file, once; see
+	 * {@link #seed(DefaultConfig)}
+	 */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private volatile byte[] seed;
 
 	public ConfigManager(String fileName, Class clazz) {
 		this(fileName, clazz, null);
@@ -62,18 +151,12 @@ public class ConfigManager<T> {
 		this.fileName = fileName;
 		this.clazz = clazz;
 		this.onReload = onReload;
+		// A custom builder may carry anything, so only the default Gson is shared
 		if (gsonBuilder == null)
-			gsonBuilder = new GsonBuilder();
-		gson = gsonBuilder.excludeFieldsWithModifiers(Modifier.PROTECTED)
-				.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_DASHES)
-				.registerTypeHierarchyAdapter(String.class, new PathAdapter())
-				.registerTypeHierarchyAdapter(Material.class, new MaterialAdapter())
-				.registerTypeHierarchyAdapter(Effect.class, new EffectAdapter())
-				.registerTypeHierarchyAdapter(EntityType.class, new EntityTypeAdapter())
-				.registerTypeHierarchyAdapter(PotionEffect.class, new PotionEffectAdapter())
-				.registerTypeAdapter(Location.class, new LocationAdapter())
-				.registerTypeAdapter(BlockFace.class, new BlockFaceAdapter())
-				.registerTypeHierarchyAdapter(Class.class, new ClassAdapter()).setPrettyPrinting().create();
+			gson = GsonRegistry.standard();
+		else
+			gson = GsonRegistry
+					.configure(gsonBuilder, AdapterSet.STANDARD, FieldNamingPolicy.LOWER_CASE_WITH_DASHES).create();
 	}
 
 	public void init() {
@@ -82,112 +165,857 @@ public class ConfigManager<T> {
 	}
 
 	/**
-	 * Register the file monitor
+	 * Same as {@link #init()}, but the file is read and parsed on the config I/O
+	 * pool and only applied (and the monitor registered) on the main thread.
+	 * 
+	 * @return completes with the loaded config once it's live
+	 */
+	public CompletableFuture<T> initAsync() {
+		return initAsync(ConfigExecutors.mainThread());
+	}
+
+	/**
+	 * Parse on the config I/O pool, then apply the result and register the monitor
+	 * on the given executor.
+	 * 
+	 * @param applyOn
+	 * @return
+	 */
+	public CompletableFuture<T> initAsync(Executor applyOn) {
+		return CompletableFuture.supplyAsync(() -> readUnchecked(false), ConfigExecutors.io())
+				.thenApplyAsync((parsed) -> {
+					publishLoaded(parsed);
+					registerMonitor();
+					return parsed.config;
+				}, applyOn);
+	}
+
+	/**
+	 * Same as {@link #reload()}, but the file is read and parsed on the config I/O
+	 * pool, and the result applied and onReload run on the main thread. Completes
+	 * exceptionally if the file doesn't parse, in which case nothing is applied.
+	 * 
+	 * @return completes with the config that's live afterwards
+	 */
+	public CompletableFuture<T> reloadAsync() {
+		return CompletableFuture.supplyAsync(() -> readUnchecked(true), ConfigExecutors.io())
+				.thenApplyAsync((parsed) -> {
+					if (parsed != null)
+						publishAndNotify(parsed);
+					return getConfig();
+				}, ConfigExecutors.mainThread());
+	}
+
+	/**
+	 * Register the file monitor. The watch engine only routes events for this
+	 * config's own file here, so other configs in the directory changing won't
+	 * trigger a reload.
 	 * 
-	 * TODO: This will reload every config any time ANYTHING in the config dir is
-	 * changed. So compartmentalize this later.
+	 * Reloads it triggers, and with them onReload, run on this config's own lane
+	 * of {@link ConfigExecutors#workers()}, so a slow onReload can't hold up
+	 * change detection or the reloads of other configs.
 	 * 
 	 */
 	public void registerMonitor() {
-		watcher = new FileWatcher((file) -> {
-			System.out.println("Reloaded: " + file);
-			this.initConfig();
-			if (this.onReload != null)
-				this.onReload.run();
-		}, new File("config" + File.separator + this.fileName));
+		reloadDebouncer = new Debouncer(() -> lane.execute(this::reload), reloadDebounce, TimeUnit.MILLISECONDS);
+		watcher = new FileWatcher((file) -> reloadDebouncer.trigger(),
+				new File("config" + File.separator + this.fileName));
 		watcher.start();
+		if (layers == null)
+			return;
+		for (Path file : layers.getFiles()) {
+			if (file.toAbsolutePath().equals(getConfigPath().toAbsolutePath()))
+				continue;
+			FileWatcher layerWatcher = new FileWatcher((changed) -> reloadDebouncer.trigger(), file.toFile());
+			layerWatcher.start();
+			layerWatchers.add(layerWatcher);
+		}
 	}
 
-	public void writeConfig() {
-		try (FileWriter w = new FileWriter("config" + File.separator + this.fileName)) {
-			getGson().toJson(config, w);
+	/**
+	 * Merge the config from layers, like the defaults in the jar under a file
+	 * shared by the network under this server's file, instead of reading its file
+	 * alone. Set it before init. The topmost layer should be the config's own
+	 * file: the monitor watches every layer file, and saves write only what
+	 * differs from the layers below into the config's own file.
+	 * 
+	 * Layered configs always keep the merged tree, so a reload after one layer
+	 * changed reuses every part of the live config the change didn't touch.
+	 * 
+	 * @param layers
+	 */
+	public void setLayers(ConfigLayers layers) {
+		this.layers = layers;
+	}
+
+	/**
+	 * @param reloadDebounce quiet period in milliseconds
+	 */
+	public void setReloadDebounce(long reloadDebounce) {
+		this.reloadDebounce = reloadDebounce;
+		if (reloadDebouncer != null)
+			reloadDebouncer.setDelay(reloadDebounce, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reload the config from disk and run onReload. Nothing happens if the content
+	 * is the same as what was last loaded, and a file that fails to parse (say,
+	 * one that's only half written) is rejected so the current config stays live.
+	 * 
+	 * @return whether a new config was applied
+	 */
+	public boolean reload() {
+		Parsed<T> parsed;
+		try {
+			parsed = read(true);
+		} catch (IOException | JsonParseException e) {
+			getMetrics().failed(getConfigPath(), true, e);
+			return false;
+		}
+		if (parsed == null) {
+			getMetrics().changeDiscarded();
+			return false;
+		}
+		publishAndNotify(parsed);
+		return true;
+	}
+
+	/**
+	 * Publish a config built from JSON that came from somewhere other than the
+	 * file, like a node replicating it (see the replication package). It's taken
+	 * like a reload of the file: checked against the constraints of its classes,
+	 * its views built, change listeners and onReload told. While change or tree
+	 * listeners are registered, every part of the live config the JSON didn't
+	 * change is reused.
+	 * 
+	 * This runs on the calling thread, so it must not run alongside a reload of
+	 * the same config; from any other thread use
+	 * {@link #submitTree(JsonElement, long)}.
+	 * 
+	 * @param tree        the whole config, not to be changed afterwards
+	 * @param fingerprint content hash of the file the JSON was read from, so the
+	 *                    same file showing up here later isn't reloaded
+	 * @return whether a new config was applied
+	 */
+	public boolean applyTree(JsonElement tree, long fingerprint) {
+		ConfigSnapshot<T> current = snapshot.get();
+		if (current != null && current.getFingerprint() == fingerprint)
+			return false;
+		Parsed<T> parsed;
+		try {
+			if (tree == null || tree.isJsonNull())
+				throw new JsonParseException("The tree applied to " + getConfigPath() + " is empty");
+			parsed = buildChecked(tree, fingerprint, current);
+		} catch (JsonParseException e) {
+			getMetrics().failed(getConfigPath(), current != null, e);
+			return false;
+		}
+		if (current == null)
+			publishLoaded(parsed);
+		else
+			publishAndNotify(parsed);
+		return true;
+	}
+
+	/**
+	 * {@link #applyTree(JsonElement, long)} on this config's lane, in order with
+	 * the reloads and deferred saves the monitor queues there, so a tree and a
+	 * reload of the file are never applied at the same time.
+	 * 
+	 * @param tree        the whole config, not to be changed afterwards
+	 * @param fingerprint content hash of the file the JSON was read from
+	 */
+	public void submitTree(JsonElement tree, long fingerprint) {
+		lane.execute(() -> applyTree(tree, fingerprint));
+	}
+
+	/**
+	 * Read and parse the file.
+	 * 
+	 * @param skipUnchanged return null if the content matches what's loaded
+	 * @return
+	 * @throws IOException
+	 * @throws JsonParseException if the file doesn't parse, is empty, breaks the
+	 *                            constraints of its classes or its views can't
+	 *                            be built from it
+	 */
+	private Parsed<T> read(boolean skipUnchanged) throws IOException {
+		if (layers != null)
+			return readLayers(skipUnchanged);
+		ConfigSource data = source();
+		getMetrics().read(data.size());
+		long newFingerprint = data.fingerprint();
+		ConfigSnapshot<T> current = snapshot.get();
+		if (skipUnchanged && current != null && newFingerprint == current.getFingerprint())
+			return null;
+		long start = System.nanoTime();
+		Parsed<T> parsed;
+		// Every broken constraint in the file is collected and rejected together
+		try (ValidationScope validation = ValidationScope.open()) {
+			parsed = keepsTrees() ? readIncremental(data, newFingerprint, current) : readWhole(data, newFingerprint);
+			validation.throwIfInvalid();
+		}
+		return prepare(parsed, start);
+	}
+
+	private ConfigSource source() throws IOException {
+		byte[] seeded = seed;
+		seed = null;
+		return seeded == null ? ConfigSource.read(getConfigPath()) : ConfigSource.of(seeded);
+	}
+
+	/**
+	 * Have the first load use the content of a default that was just extracted
+	 * (see {@link DefaultConfigs}) instead of reading the file again. Ignored if
+	 * it's another file or the config is already loaded.
+	 * 
+	 * @param extracted
+	 */
+	public void seed(DefaultConfig extracted) {
+		if (!isLoaded() && extracted.getData() != null && extracted.getFile().toAbsolutePath().normalize()
+				.equals(getConfigPath().toAbsolutePath().normalize()))
+			seed = extracted.getData();
+	}
+
+	private Parsed<T> readLayers(boolean skipUnchanged) throws IOException {
+		ConfigLayers.Merged merged = layers.read();
+		getMetrics().read(merged.getSize());
+		ConfigSnapshot<T> current = snapshot.get();
+		if (skipUnchanged && current != null && merged.getFingerprint() == current.getFingerprint())
+			return null;
+		if (merged.getTree().isJsonNull())
+			throw new JsonParseException("Every layer of " + getConfigPath() + " is missing or empty");
+		return buildChecked(merged.getTree(), merged.getFingerprint(), current);
+	}
+
+	/**
+	 * Build the config from a tree, check its constraints and build its views.
+	 */
+	private Parsed<T> buildChecked(JsonElement tree, long fingerprint, ConfigSnapshot<T> current) {
+		long start = System.nanoTime();
+		Parsed<T> parsed;
+		try (ValidationScope validation = ValidationScope.open()) {
+			parsed = build(tree, fingerprint, current);
+			validation.throwIfInvalid();
+		}
+		return prepare(parsed, start);
+	}
+
+	/**
+	 * Finish a parse that started at the given time, by building the views of
+	 * what it parsed.
+	 */
+	private Parsed<T> prepare(Parsed<T> parsed, long start) {
+		parsed.parseNanos = System.nanoTime() - start;
+		getMetrics().parsed(parsed.parseNanos);
+		// A config its views can't be built from is rejected like one that
+		// doesn't parse, so the live config keeps the views it has
+		try {
+			parsed.prepared = prepare(parsed.config);
+		} catch (RuntimeException e) {
+			throw new JsonParseException("Couldn't build the derived views of " + getConfigPath(), e);
+		}
+		return parsed;
+	}
+
+	private Parsed<T> readWhole(ConfigSource data, long newFingerprint) throws IOException {
+		boolean cached = binaryCache && ConfigCache.supports(getGson());
+		T conf = cached ? ConfigCache.load(getConfigPath(), newFingerprint, clazz, getGson()) : null;
+		if (conf == null) {
+			try (Reader in = data.reader()) {
+				conf = parse(in);
+			}
+			if (conf == null)
+				throw new JsonParseException(getConfigPath() + " is empty");
+			if (cached)
+				storeCache(data, newFingerprint);
+		}
+		return new Parsed<>(conf, newFingerprint, null, null);
+	}
+
+	/**
+	 * Parse the file as a tree, diff it against the tree the live config was built
+	 * from and build the new config reusing every unchanged part of the live one.
+	 * Without a tree to compare with, the whole file counts as changed.
+	 */
+	private Parsed<T> readIncremental(ConfigSource data, long fingerprint, ConfigSnapshot<T> current) throws IOException {
+		JsonElement tree = parseTree(data);
+		if (tree.isJsonNull())
+			throw new JsonParseException(getConfigPath() + " is empty");
+		return build(tree, fingerprint, current);
+	}
+
+	private Parsed<T> build(JsonElement tree, long fingerprint, ConfigSnapshot<T> current) {
+		Baseline<T> base = baseline;
+		if (current == null || base == null || base.config != current.getConfig()) {
+			T conf = (T) getGson().fromJson(tree, clazz);
+			return new Parsed<>(conf, fingerprint, tree, Collections.singletonList(
+					new ConfigChange(ConfigChange.Kind.CHANGED, "", null, tree, getGson())));
+		}
+		if (merger == null || merger.getGson() != getGson())
+			merger = new SubtreeMerger(getGson());
+		T conf = (T) merger.merge(clazz, base.config, base.tree, tree, "$");
+		return new Parsed<>(conf, fingerprint, tree, JsonDiff.diff(base.tree, tree, getGson()));
+	}
+
+	private JsonElement parseTree(ConfigSource data) throws IOException {
+		try (Reader in = data.reader()) {
+			return JsonParser.parseReader(in);
+		}
+	}
+
+	private void storeCache(ConfigSource data, long fingerprint) {
+		ConfigExecutors.io().execute(() -> {
+			try {
+				ConfigCache.store(getConfigPath(), data, fingerprint, clazz);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * Read for the async paths, which reload when skipping unchanged content and
+	 * load otherwise.
+	 */
+	private Parsed<T> readUnchecked(boolean skipUnchanged) {
+		try {
+			Parsed<T> parsed = read(skipUnchanged);
+			if (parsed == null)
+				getMetrics().changeDiscarded();
+			return parsed;
+		} catch (IOException e) {
+			getMetrics().failed(getConfigPath(), skipUnchanged, e);
+			throw new CompletionException(e);
+		} catch (RuntimeException e) {
+			getMetrics().failed(getConfigPath(), skipUnchanged, e);
+			throw e;
+		}
+	}
+
+	private void publishLoaded(Parsed<T> parsed) {
+		publish(parsed);
+		getMetrics().published(getConfigPath(), false, parsed.parseNanos);
+		fireTree(parsed.tree, parsed.fingerprint);
+	}
+
+	private void publishAndNotify(Parsed<T> parsed) {
+		publish(parsed);
+		getMetrics().published(getConfigPath(), true, parsed.parseNanos);
+		fireTree(parsed.tree, parsed.fingerprint);
+		if (parsed.changes != null)
+			fireChanges(parsed.changes);
+		Runnable hook = this.onReload;
+		if (hook != null) {
+			if (onReloadOnMainThread)
+				MainThreadQueue.getInstance().submit(hook, getFileName() + "/onReload", hook);
+			else
+				hook.run();
+		}
+		for (ReloadSubscription<T> subscription : reloadListeners) {
+			try {
+				TickTask task = subscription.listener.apply(parsed.config);
+				if (task != null)
+					MainThreadQueue.getInstance().submit(subscription, subscription.name, task);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void fireTree(JsonElement tree, long fingerprint) {
+		if (tree == null)
+			return;
+		for (ConfigTreeListener listener : treeListeners) {
+			try {
+				listener.onTree(tree, fingerprint);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void fireChanges(List<ConfigChange> changes) {
+		for (ChangeSubscription subscription : changeListeners) {
+			for (ConfigChange change : changes) {
+				if (!change.affects(subscription.path))
+					continue;
+				try {
+					subscription.listener.onChange(change);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Be told about every change to the config in a reload, down to single
+	 * values: {@code shops.weapons[3].price changed}. While any listener is
+	 * registered, a reload diffs the new file against the previous one and the
+	 * new config reuses every object of the previous one whose part of the file
+	 * didn't change, so whatever was built from those objects stays valid.
+	 * Anything changed on the live config in memory and not saved carries over
+	 * into the reused parts.
+	 * 
+	 * Listeners run right before onReload, on the same thread.
+	 * 
+	 * @param path     only changes at, under or above this path, like
+	 *                 {@code shops.weapons}; empty for all of them
+	 * @param listener
+	 */
+	public void addChangeListener(String path, ConfigChangeListener listener) {
+		changeListeners.add(new ChangeSubscription(path, listener));
+		if (baseline == null)
+			captureBaseline();
+	}
+
+	public void addChangeListener(ConfigChangeListener listener) {
+		addChangeListener("", listener);
+	}
+
+	public void removeChangeListener(ConfigChangeListener listener) {
+		changeListeners.removeIf((subscription) -> subscription.listener == listener);
+		if (!keepsTrees())
+			baseline = null;
+	}
+
+	/**
+	 * Be handed the JSON tree of every config that goes live from then on, and of
+	 * every save, along with the fingerprint of the file it's from. Reloads keep
+	 * the trees the same way they do for change listeners. If the file still
+	 * holds the live config, the listener is handed its tree right away.
+	 * 
+	 * Listeners run right after the config is published, on the same thread.
+	 * 
+	 * @param listener
+	 */
+	public void addTreeListener(ConfigTreeListener listener) {
+		treeListeners.add(listener);
+		if (baseline == null)
+			captureBaseline();
+		Baseline<T> base = baseline;
+		ConfigSnapshot<T> current = snapshot.get();
+		if (base != null && current != null && base.config == current.getConfig())
+			listener.onTree(base.tree, current.getFingerprint());
+	}
+
+	public void removeTreeListener(ConfigTreeListener listener) {
+		treeListeners.remove(listener);
+		if (!keepsTrees())
+			baseline = null;
+	}
+
+	/**
+	 * Be handed every reloaded config on the server main thread, at a tick
+	 * boundary and within the tick budget of {@link MainThreadQueue}, so touching
+	 * Bukkit state is safe. If the listener is still queued when the next reload
+	 * comes in, it's only handed the newer config.
+	 * 
+	 * @param name     what the listener's time is measured under, unique for this
+	 *                 config
+	 * @param listener
+	 */
+	public void addReloadListener(String name, Consumer<? super T> listener) {
+		addChunkedReloadListener(name, (config) -> () -> {
+			listener.accept(config);
+			return true;
+		});
+	}
+
+	/**
+	 * Like {@link #addReloadListener(String, Consumer)}, for work too heavy for a
+	 * single tick: the listener returns a task that does it a chunk at a time,
+	 * continued over as many ticks as it takes. A reload that comes in before
+	 * the task is done drops it and starts a task for the newer config.
+	 * 
+	 * <pre>
+	 * manager.addChunkedReloadListener("signs", (config) -> {
+	 * 	Iterator&lt;ShopSign&gt; signs = config.getSigns().iterator();
+	 * 	return () -> {
+	 * 		for (int i = 0; i < 50 && signs.hasNext(); i++)
+	 * 			signs.next().redraw();
+	 * 		return !signs.hasNext();
+	 * 	};
+	 * });
+	 * </pre>
+	 * 
+	 * The function itself runs on the thread that reloaded, so it must not touch
+	 * Bukkit state; only the task's steps run on the main thread.
+	 * 
+	 * @param name     what the task's steps are timed under, unique for this
+	 *                 config
+	 * @param listener
+	 */
+	public void addChunkedReloadListener(String name, Function<? super T, ? extends TickTask> listener) {
+		reloadListeners.add(new ReloadSubscription<>(getFileName() + "/" + name, listener));
+	}
+
+	public void removeReloadListener(String name) {
+		reloadListeners.removeIf((subscription) -> subscription.name.equals(getFileName() + "/" + name));
+	}
+
+	/**
+	 * @return whether reloads have to keep the JSON tree the config is built from
+	 */
+	private boolean keepsTrees() {
+		return !changeListeners.isEmpty() || !treeListeners.isEmpty();
+	}
+
+	/**
+	 * Keep the tree of the loaded file for the next reload to diff against, if
+	 * the file still holds what's loaded.
+	 */
+	private void captureBaseline() {
+		ConfigSnapshot<T> current = snapshot.get();
+		if (current == null)
+			return;
+		try {
+			ConfigSource data = ConfigSource.read(getConfigPath());
+			if (data.fingerprint() == current.getFingerprint())
+				baseline = baselineOf(current.getConfig(), data);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	private Baseline<T> baselineOf(T config, ConfigSource data) {
+		try {
+			return new Baseline<>(config, parseTree(data));
+		} catch (IOException | JsonParseException e) {
+			return null;
+		}
+	}
+
+	public void writeConfig() {
+		saveConfig();
+	}
+
+	/**
+	 * Write the live config to its file right away. The write is atomic, and the
+	 * monitor is told to ignore the change it causes.
+	 */
 	public void saveConfig() {
-		try (FileWriter writer = new FileWriter(new File("config" + File.separator + this.fileName))) {
-			gson.toJson(getConfig(), writer);
-		} catch (IOException e) {
+		pendingSaves.remove(this);
+		savePending.set(false);
+		try {
+			T config = getConfig();
+			byte[] data = layers == null ? AtomicFiles.toJsonBytes(getGson(), config)
+					: AtomicFiles.toJsonBytes(getGson(), layers.overrides(getGson().toJsonTree(config)));
+			if (watcher != null)
+				watcher.expect(XXHash64.hash(data));
+			AtomicFiles.write(getConfigPath(), data);
+			// What was written is what the next reload has to be compared with
+			if (layers != null) {
+				ConfigLayers.Merged merged = layers.read();
+				baseline = new Baseline<>(config, merged.getTree());
+				fireTree(merged.getTree(), merged.getFingerprint());
+			} else if (keepsTrees()) {
+				baseline = baselineOf(config, ConfigSource.of(data));
+				if (baseline != null)
+					fireTree(baseline.tree, XXHash64.hash(data));
+			}
+		} catch (IOException | JsonParseException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Save the config after the write-behind delay. Use this for saves that can
+	 * come in fast (like on every admin command): however many are requested in
+	 * the window, the config is written once, as it is when the write happens.
+	 */
+	public void saveLater() {
+		if (savePending.compareAndSet(false, true)) {
+			pendingSaves.add(this);
+			ConfigExecutors.scheduler().schedule(() -> lane.execute(this::flushPendingSave), writeBehind,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Write a save requested through {@link #saveLater()} now, if there is one.
+	 */
+	public void flushPendingSave() {
+		if (savePending.get())
+			saveConfig();
+	}
+
+	/**
+	 * {@link #flushPendingSave()} every manager with a save still pending. Has to
+	 * run before {@link ConfigExecutors#shutdown()}, which drops the scheduled
+	 * writes.
+	 */
+	public static void flushPendingSaves() {
+		List<ConfigManager<?>> managers;
+		synchronized (pendingSaves) {
+			managers = new ArrayList<>(pendingSaves);
+		}
+		managers.forEach(ConfigManager::flushPendingSave);
+	}
+
 	protected void initConfig() {
-		File confFile = new File("config" + File.separator + fileName);
-		try (FileInputStream inputStream = new FileInputStream(confFile)) {
-			try (Reader in = new InputStreamReader(inputStream, "UTF-8")) {
-				T conf = (T) getGson().fromJson(in, clazz);
-				this.config = conf;
-			}
+		try {
+			publishLoaded(read(false));
 		} catch (Exception e) {
-			e.printStackTrace();
+			getMetrics().failed(getConfigPath(), false, e);
+		}
+
+	}
+
+	protected T parse(Reader in) throws IOException {
+		return (T) getGson().fromJson(in, clazz);
+	}
+
+	private ConfigSnapshot<T> publish(T conf, long fingerprint) {
+		return ConfigSnapshot.publish(snapshot, prepare(conf), fingerprint);
+	}
+
+	private ConfigSnapshot<T> publish(Parsed<T> parsed) {
+		if (parsed.tree != null)
+			baseline = new Baseline<>(parsed.config, parsed.tree);
+		return ConfigSnapshot.publish(snapshot, parsed.prepared, parsed.fingerprint);
+	}
+
+	/**
+	 * Build every view of a config before it's published, spread over
+	 * {@link ConfigExecutors#workers()} when there are several. This thread
+	 * builds whatever no worker has picked up yet, so it never waits on a busy
+	 * pool.
+	 */
+	private ConfigSnapshot<T> prepare(T config) {
+		ConfigSnapshot<T> prepared = ConfigSnapshot.prepare(config);
+		List<DerivedView<T, ?>> pending = new ArrayList<>(views);
+		for (int i = 1; i < pending.size(); i++) {
+			DerivedView<T, ?> view = pending.get(i);
+			ConfigExecutors.workers().execute(() -> {
+				try {
+					prepared.get(view);
+				} catch (RuntimeException e) {
+					// Thrown again when this thread gets to the view
+				}
+			});
+		}
+		for (DerivedView<T, ?> view : pending)
+			prepared.get(view);
+		return prepared;
+	}
+
+	/**
+	 * Keep something built from the config, like a lookup map, with every
+	 * snapshot the config is published in. Each view is built once per version,
+	 * before the version is published (on the thread that read the file, or
+	 * spread over the workers when there are several views), so readers never
+	 * build it and never see it out of step with the config:
+	 *
+	 * <pre>
+	 * DerivedView&lt;ShopConfig, Map&lt;Material, Double&gt;&gt; prices = manager.derive(ShopConfig::priceIndex);
+	 * ...
+	 * ConfigSnapshot&lt;ShopConfig&gt; snapshot = manager.getSnapshot();
+	 * double price = snapshot.get(prices).get(material);
+	 * </pre>
+	 *
+	 * A reload whose config the function throws on is rejected, leaving the live
+	 * config and its views in place. Use this instead of rebuilding in onReload,
+	 * which races with whoever reads the old index meanwhile.
+	 *
+	 * @param function builds the view out of a config, without changing it
+	 * @return the view, already built for the live config if there is one
+	 */
+	public <D> DerivedView<T, D> derive(Function<? super T, ? extends D> function) {
+		return derive(null, function);
+	}
+
+	<D> DerivedView<T, D> derive(DerivedView<T, ?> parent, Function<?, ? extends D> function) {
+		DerivedView<T, D> view = new DerivedView<>(this, parent, function);
+		views.add(view);
+		ConfigSnapshot<T> current = snapshot.get();
+		if (current != null)
+			current.get(view);
+		return view;
+	}
+
+	void removeView(DerivedView<T, ?> view) {
+		views.remove(view);
+	}
+
+	public Path getConfigPath() {
+		return Paths.get("config", fileName);
+	}
+
+	/**
+	 * @return the load and reload statistics of this config's file
+	 */
+	public ConfigMetrics getMetrics() {
+		return ConfigMetrics.of(getConfigPath());
+	}
+
+	private static final class Parsed<T> {
+		private final T config;
+		private final long fingerprint;
+		/**
+		 * Only read when change listeners are registered
+		 */
+		private final JsonElement tree;
+		private final List<ConfigChange> changes;
+		private long parseNanos;
+		/**
+		 * The config with its views built, ready to publish
+		 */
+		private ConfigSnapshot<T> prepared;
+
+		private Parsed(T config, long fingerprint, JsonElement tree, List<ConfigChange> changes) {
+			this.config = config;
+			this.fingerprint = fingerprint;
+			this.tree = tree;
+			this.changes = changes;
+		}
+	}
+
+	private static final class Baseline<T> {
+		private final T config;
+		private final JsonElement tree;
+
+		private Baseline(T config, JsonElement tree) {
+			this.config = config;
+			this.tree = tree;
+		}
+	}
+
+	private static final class ReloadSubscription<T> {
+		private final String name;
+		private final Function<? super T, ? extends TickTask> listener;
+
+		private ReloadSubscription(String name, Function<? super T, ? extends TickTask> listener) {
+			this.name = name;
+			this.listener = listener;
 		}
+	}
+
+	private static final class ChangeSubscription {
+		private final String path;
+		private final ConfigChangeListener listener;
+
+		private ChangeSubscription(String path, ConfigChangeListener listener) {
+			this.path = path;
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * @return the live snapshot, or null if nothing was loaded yet
+	 */
+	public ConfigSnapshot<T> getSnapshot() {
+		return snapshot.get();
+	}
 
+	public T getConfig() {
+		ConfigSnapshot<T> current = snapshot.get();
+		return current == null ? null : current.getConfig();
+	}
+
+	/**
+	 * @return the version of the live snapshot, bumped on every publish; 0 if
+	 *         nothing was loaded yet
+	 */
+	public long getVersion() {
+		ConfigSnapshot<T> current = snapshot.get();
+		return current == null ? 0 : current.getVersion();
+	}
+
+	public boolean isLoaded() {
+		return snapshot.get() != null;
 	}
 
 	public T targetUnit() {
-		return config;
+		return getConfig();
 	}
 
+	/**
+	 * Publish the given config as a new snapshot. It keeps the fingerprint of the
+	 * file that was last loaded, so an unchanged file won't overwrite it on the
+	 * next reload.
+	 * 
+	 * @param config
+	 */
 	public void setConfig(T config) {
-		this.config = config;
+		ConfigSnapshot<T> current = snapshot.get();
+		publish(config, current == null ? 0 : current.getFingerprint());
 	}
 
+	/**
+	 * @deprecated every enum is read by {@link EnumLookupAdapterFactory} now, this
+	 *             only delegates to it
+	 */
+	@Deprecated
 	public static class BlockFaceAdapter extends TypeAdapter<BlockFace> {
+		private final TypeAdapter<BlockFace> lookup = EnumLookupAdapterFactory.adapterFor(BlockFace.class);
 
 		@Override
 		public BlockFace read(JsonReader arg0) throws IOException {
-			String materialValue = arg0.nextString();
-			return BlockFace.valueOf(materialValue.replace(" ", "_").toUpperCase());
+			return lookup.read(arg0);
 		}
 
 		@Override
 		public void write(JsonWriter arg0, BlockFace arg1) throws IOException {
-			arg0.value(arg1.toString());
+			lookup.write(arg0, arg1);
 		}
 	}
 
+	/**
+	 * @deprecated every enum is read by {@link EnumLookupAdapterFactory} now, this
+	 *             only delegates to it
+	 */
+	@Deprecated
 	public static class EffectAdapter extends TypeAdapter<Effect> {
+		private final TypeAdapter<Effect> lookup = EnumLookupAdapterFactory.adapterFor(Effect.class);
 
 		@Override
 		public Effect read(JsonReader arg0) throws IOException {
-			String materialValue = arg0.nextString();
-			return Effect.valueOf(materialValue.replace(" ", "_").toUpperCase());
+			return lookup.read(arg0);
 		}
 
 		@Override
 		public void write(JsonWriter arg0, Effect arg1) throws IOException {
-			arg0.value(arg1.toString());
+			lookup.write(arg0, arg1);
 		}
 	}
 
+	/**
+	 * @deprecated every enum is read by {@link EnumLookupAdapterFactory} now, this
+	 *             only delegates to it
+	 */
+	@Deprecated
 	public static class EntityTypeAdapter extends TypeAdapter<EntityType> {
+		private final TypeAdapter<EntityType> lookup = EnumLookupAdapterFactory.adapterFor(EntityType.class);
 
 		@Override
 		public EntityType read(JsonReader arg0) throws IOException {
-			String materialValue = arg0.nextString();
-			return EntityType.valueOf(materialValue.replace(" ", "_").toUpperCase());
+			return lookup.read(arg0);
 		}
 
 		@Override
 		public void write(JsonWriter arg0, EntityType arg1) throws IOException {
-			arg0.value(arg1.toString());
+			lookup.write(arg0, arg1);
 		}
 	}
 
+	/**
+	 * @deprecated every enum is read by {@link EnumLookupAdapterFactory} now, this
+	 *             only delegates to it
+	 */
+	@Deprecated
 	public static class MaterialAdapter extends TypeAdapter<Material> {
+		private final TypeAdapter<Material> lookup = EnumLookupAdapterFactory.adapterFor(Material.class);
 
 		@Override
 		public Material read(JsonReader arg0) throws IOException {
-			String materialValue = arg0.nextString();
-			return Material.valueOf(materialValue.replace(" ", "_").toUpperCase());
+			return lookup.read(arg0);
 		}
 
 		@Override
 		public void write(JsonWriter arg0, Material arg1) throws IOException {
-			arg0.value(arg1.toString());
+			lookup.write(arg0, arg1);
 		}
 	}
 
@@ -241,49 +1069,55 @@ public class ConfigManager<T> {
 
 	}
 
+	/**
+	 * Reads {"x": .., "y": .., "z": .., "world": ".."}. Missing coordinates and
+	 * worlds that don't exist are reported with their path to the open
+	 * {@link ValidationScope}, so they're rejected along with everything else
+	 * wrong in the file.
+	 */
 	public static class LocationAdapter extends TypeAdapter<Location> {
 		@Override
 		public Location read(JsonReader reader) throws IOException {
+			ValidationScope scope = ValidationScope.current();
+			String path = scope == null ? reader.getPath() : scope.resolve(reader.getPath());
 			reader.beginObject();
-			JsonToken token = reader.peek();
 			Double x = null;
 			Double y = null;
 			Double z = null;
 			String worldName = null;
 			while (reader.hasNext()) {
-				if (token.equals(JsonToken.NAME)) {
-					String fieldName = reader.nextName();
-					if (fieldName.equalsIgnoreCase("x")) {
-						System.out.println("X");
-						x = reader.nextDouble();
-					} else if (fieldName.equalsIgnoreCase("y")) {
-						System.out.println("Y");
-						y = reader.nextDouble();
-					} else if (fieldName.equalsIgnoreCase("z")) {
-						System.out.println("Z");
-						z = reader.nextDouble();
-					} else if (fieldName.equalsIgnoreCase("world")) {
-						System.out.println("WORLD");
-						worldName = reader.nextString();
-					}
+				String fieldName = reader.nextName();
+				if (fieldName.equalsIgnoreCase("x")) {
+					x = reader.nextDouble();
+				} else if (fieldName.equalsIgnoreCase("y")) {
+					y = reader.nextDouble();
+				} else if (fieldName.equalsIgnoreCase("z")) {
+					z = reader.nextDouble();
+				} else if (fieldName.equalsIgnoreCase("world")) {
+					worldName = reader.nextString();
+				} else {
+					reader.skipValue();
 				}
 			}
-			if (x == null)
-				throw new IllegalStateException("Invalid config on location (x is null) ");
-			else if (y == null)
-				throw new IllegalStateException("Invalid config on location (y is null) ");
-			else if (z == null)
-				throw new IllegalStateException("Invalid config on location (z is null) ");
-			else if (worldName == null)
-				throw new IllegalStateException("Invalid world on location ");
-			if (Bukkit.getWorld(worldName) == null)
-				// might not want to use this.
-				throw new IllegalStateException(
-						"Location contains areference to a world that does not exist called " + worldName);
 			reader.endObject();
+			// Not short-circuiting, so every missing part is reported
+			if (!required(x, path, "x") | !required(y, path, "y") | !required(z, path, "z")
+					| !required(worldName, path, "world"))
+				return null;
+			// might not want to use this.
+			if (Bukkit.getWorld(worldName) == null) {
+				ValidationScope.report(path + ".world", "there's no world called \"" + worldName + "\"");
+				return null;
+			}
 			return new Location(Bukkit.getWorld(worldName), x.doubleValue(), y.doubleValue(), z.doubleValue());
 		}
 
+		private static boolean required(Object value, String path, String name) {
+			if (value == null)
+				ValidationScope.report(path + "." + name, "is required");
+			return value != null;
+		}
+
 		@Override
 		public void write(JsonWriter arg0, Location arg1) throws IOException {
 			arg0.value(arg1.toString());
@@ -291,19 +1125,14 @@ public class ConfigManager<T> {
 
 	}
 
-	public static class PathAdapter extends TypeAdapter<String> {
-		@Override
-		public String read(JsonReader arg0) throws IOException {
-			String string = arg0.nextString();
-			if (string.contains("http") || string.contains("jdbc"))
-				return string;
-			return ChatColor.translateAlternateColorCodes('&',
-					string.replace("//", File.separator).replace("\\", File.separator));
-		}
-
-		@Override
-		public void write(JsonWriter arg0, String arg1) throws IOException {
-			arg0.value(arg1);
+	/**
+	 * Applied to every string under {@link AdapterSet#STANDARD}: translates color
+	 * codes and turns {@code //} and {@code \} into the file separator, leaving
+	 * URLs and JDBC strings alone. See {@link StringPostProcessor}.
+	 */
+	public static class PathAdapter extends StringPostProcessor.Adapter {
+		public PathAdapter() {
+			super(StringPostProcessor.STANDARD);
 		}
 	}
 
@@ -0,0 +1,273 @@
+package com.redmancometh.configcore.config;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.Getter;
+
+/**
+ * Load, reload and watch statistics of one config file or config folder, kept
+ * from the first time it's touched until {@link #unregisterAll()}. Each one is
+ * registered as an MXBean with the platform MBean server, and the events it
+ * records go to every registered {@link ConfigEventListener}.
+ *
+ * The change to publish time runs from the watcher seeing the file change to
+ * the new config being live, so it includes the reload debounce.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class ConfigMetrics implements ConfigMetricsMXBean {
+	private static final String DOMAIN = "com.redmancometh.configcore";
+	private static final Map<String, ConfigMetrics> metrics = new ConcurrentHashMap<>();
+	private static final List<ConfigEventListener> listeners = new CopyOnWriteArrayList<>(
+			Boolean.getBoolean("configcore.quiet") ? Collections.emptyList()
+					: Collections.singletonList(ConfigEventListener.CONSOLE));
+	@Getter
+	private final String name;
+	@Getter
+	private final LatencyHistogram parseTime = new LatencyHistogram();
+	@Getter
+	private final LatencyHistogram watcherTickTime = new LatencyHistogram();
+	@Getter
+	private final LatencyHistogram changeToPublishTime = new LatencyHistogram();
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder reloads = new LongAdder();
+	private final LongAdder failedReloads = new LongAdder();
+	private final AtomicLong changeSeenAt = new AtomicLong();
+	@Getter
+	private volatile String lastError;
+	@Getter
+	private volatile long lastErrorTime;
+	private ObjectName objectName;
+
+	private ConfigMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param file a config file or folder
+	 * @return its metrics, created on first use
+	 */
+	public static ConfigMetrics of(Path file) {
+		return of(file.normalize().toString());
+	}
+
+	public static ConfigMetrics of(String name) {
+		ConfigMetrics existing = metrics.get(name);
+		return existing != null ? existing : metrics.computeIfAbsent(name, ConfigMetrics::create);
+	}
+
+	private static ConfigMetrics create(String name) {
+		ConfigMetrics created = new ConfigMetrics(name);
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=ConfigMetrics,name=" + ObjectName.quote(name));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(created, objectName);
+			created.objectName = objectName;
+		} catch (JMException | RuntimeException e) {
+			e.printStackTrace();
+		}
+		return created;
+	}
+
+	/**
+	 * @return the metrics of every config touched so far
+	 */
+	public static Collection<ConfigMetrics> all() {
+		return Collections.unmodifiableCollection(metrics.values());
+	}
+
+	/**
+	 * Remove every MXBean and forget all metrics. Called from ConfigCore's
+	 * onDisable, so a plugin reload doesn't leave beans of the old class loader
+	 * registered.
+	 */
+	public static void unregisterAll() {
+		List<ConfigMetrics> removed = new ArrayList<>(metrics.values());
+		metrics.clear();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ConfigMetrics metric : removed) {
+			if (metric.objectName == null)
+				continue;
+			try {
+				if (server.isRegistered(metric.objectName))
+					server.unregisterMBean(metric.objectName);
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public static void addListener(ConfigEventListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(ConfigEventListener listener) {
+		listeners.remove(listener);
+	}
+
+	void read(long bytes) {
+		bytesRead.add(bytes);
+	}
+
+	void parsed(long nanos) {
+		parseTime.record(nanos);
+	}
+
+	void watcherTicked(long nanos) {
+		watcherTickTime.record(nanos);
+	}
+
+	/**
+	 * The watcher saw the file change. Only the first change before the next
+	 * publish counts, so the time includes the debounce.
+	 */
+	void changeDetected() {
+		changeSeenAt.compareAndSet(0, System.nanoTime());
+	}
+
+	/**
+	 * The change the watcher saw didn't lead to anything to publish.
+	 */
+	void changeDiscarded() {
+		changeSeenAt.set(0);
+	}
+
+	void published(Path file, boolean reload, long parseNanos) {
+		long seenAt = changeSeenAt.getAndSet(0);
+		if (reload) {
+			reloads.increment();
+			if (seenAt != 0)
+				changeToPublishTime.record(System.nanoTime() - seenAt);
+		} else {
+			loads.increment();
+		}
+		fire(new ConfigEvent(reload ? ConfigEvent.Kind.RELOADED : ConfigEvent.Kind.LOADED, this, file, parseNanos,
+				null));
+	}
+
+	void failed(Path file, boolean reload, Throwable error) {
+		changeSeenAt.set(0);
+		if (reload)
+			failedReloads.increment();
+		lastError = String.valueOf(error);
+		lastErrorTime = System.currentTimeMillis();
+		fire(new ConfigEvent(reload ? ConfigEvent.Kind.RELOAD_FAILED : ConfigEvent.Kind.LOAD_FAILED, this, file, 0,
+				error));
+	}
+
+	void cacheIgnored(Path cacheFile, Throwable error) {
+		fire(new ConfigEvent(ConfigEvent.Kind.CACHE_IGNORED, this, cacheFile, 0, error));
+	}
+
+	void defaultsCopied(Path file) {
+		fire(new ConfigEvent(ConfigEvent.Kind.DEFAULTS_COPIED, this, file, 0, null));
+	}
+
+	private void fire(ConfigEvent event) {
+		for (ConfigEventListener listener : listeners) {
+			try {
+				listener.onEvent(event);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Override
+	public long getLoadCount() {
+		return loads.sum();
+	}
+
+	@Override
+	public long getReloadCount() {
+		return reloads.sum();
+	}
+
+	@Override
+	public long getFailedReloadCount() {
+		return failedReloads.sum();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getParseCount() {
+		return parseTime.getCount();
+	}
+
+	@Override
+	public double getParseMeanMillis() {
+		return parseTime.getMeanMillis();
+	}
+
+	@Override
+	public double getParseP50Millis() {
+		return parseTime.getPercentileMillis(0.5);
+	}
+
+	@Override
+	public double getParseP99Millis() {
+		return parseTime.getPercentileMillis(0.99);
+	}
+
+	@Override
+	public double getParseMaxMillis() {
+		return parseTime.getMaxMillis();
+	}
+
+	@Override
+	public long getWatcherTickCount() {
+		return watcherTickTime.getCount();
+	}
+
+	@Override
+	public double getWatcherTickMeanMillis() {
+		return watcherTickTime.getMeanMillis();
+	}
+
+	@Override
+	public double getWatcherTickP99Millis() {
+		return watcherTickTime.getPercentileMillis(0.99);
+	}
+
+	@Override
+	public double getWatcherTickMaxMillis() {
+		return watcherTickTime.getMaxMillis();
+	}
+
+	@Override
+	public double getChangeToPublishP50Millis() {
+		return changeToPublishTime.getPercentileMillis(0.5);
+	}
+
+	@Override
+	public double getChangeToPublishP99Millis() {
+		return changeToPublishTime.getPercentileMillis(0.99);
+	}
+
+	@Override
+	public double getChangeToPublishMaxMillis() {
+		return changeToPublishTime.getMaxMillis();
+	}
+}
@@ -0,0 +1,52 @@
+package com.redmancometh.configcore.config;
+
+/**
+ * What JMX shows of a {@link ConfigMetrics}, under
+ * {@code com.redmancometh.configcore:type=ConfigMetrics,name="<file>"}. Times
+ * are in milliseconds.
+ *
+ * @author Redmancometh
+ *
+ */
+public interface ConfigMetricsMXBean {
+	String getName();
+
+	long getLoadCount();
+
+	long getReloadCount();
+
+	long getFailedReloadCount();
+
+	String getLastError();
+
+	/**
+	 * @return when the last error happened in epoch milliseconds, 0 if never
+	 */
+	long getLastErrorTime();
+
+	long getBytesRead();
+
+	long getParseCount();
+
+	double getParseMeanMillis();
+
+	double getParseP50Millis();
+
+	double getParseP99Millis();
+
+	double getParseMaxMillis();
+
+	long getWatcherTickCount();
+
+	double getWatcherTickMeanMillis();
+
+	double getWatcherTickP99Millis();
+
+	double getWatcherTickMaxMillis();
+
+	double getChangeToPublishP50Millis();
+
+	double getChangeToPublishP99Millis();
+
+	double getChangeToPublishMaxMillis();
+}
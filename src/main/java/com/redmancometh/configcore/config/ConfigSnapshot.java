@@ -0,0 +1,133 @@
+package com.redmancometh.configcore.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * An immutable, versioned view of a config as it was published by its
+ * manager. Snapshots are handed over through an {@link AtomicReference}, so
+ * whoever reads one sees the fully constructed config it was published with.
+ * Treat the config object itself as read-only once published.
+ *
+ * A snapshot also carries the values of its manager's {@link DerivedView}s,
+ * built from its config, so a config and what's derived from it are always
+ * read from the same version:
+ *
+ * <pre>
+ * ConfigSnapshot&lt;ShopConfig&gt; snapshot = manager.getSnapshot();
+ * Map&lt;Material, Double&gt; prices = snapshot.get(pricesView);
+ * </pre>
+ *
+ * @author Redmancometh
+ *
+ * @param <T>
+ */
+@Getter
+public final class ConfigSnapshot<T> {
+	/**
+	 * Publications started/finished across every manager, used by
+	 * {@link #readConsistent(ConfigManager...)} to notice a publication that raced
+	 * with it.
+	 */
+	private static final AtomicLong STARTED = new AtomicLong();
+	private static final AtomicLong FINISHED = new AtomicLong();
+	/**
+	 * Stands in for a view whose value is null, which the map can't hold
+	 */
+	private static final Object NULL = new Object();
+	private final T config;
+	private final long version;
+	private final long fingerprint;
+	@Getter(AccessLevel.NONE)
+	private final Map<DerivedView<T, ?>, Object> derived;
+
+	private ConfigSnapshot(T config, long version, long fingerprint, Map<DerivedView<T, ?>, Object> derived) {
+		this.config = config;
+		this.version = version;
+		this.fingerprint = fingerprint;
+		this.derived = derived;
+	}
+
+	/**
+	 * An unpublished snapshot of the config, for its views to be built in before
+	 * it's published with {@link #publish(AtomicReference, ConfigSnapshot, long)}.
+	 *
+	 * @param config
+	 * @return
+	 */
+	static <T> ConfigSnapshot<T> prepare(T config) {
+		return new ConfigSnapshot<>(config, 0, 0, new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * The value of a view for this snapshot's config. Each view is built once per
+	 * snapshot, by whichever thread gets to it first; others asking for it
+	 * meanwhile wait for that one.
+	 *
+	 * @param view a view of the manager this snapshot was published by
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <D> D get(DerivedView<T, D> view) {
+		Object value = derived.get(view);
+		if (value == null) {
+			synchronized (view) {
+				value = derived.get(view);
+				if (value == null) {
+					value = view.compute(this);
+					derived.put(view, value == null ? NULL : value);
+				}
+			}
+		}
+		return value == NULL ? null : (D) value;
+	}
+
+	/**
+	 * Publish a prepared snapshot with the next version number, along with every
+	 * view already built in it.
+	 *
+	 * @param ref
+	 * @param prepared
+	 * @param fingerprint content hash of the source the config came from
+	 * @return the published snapshot
+	 */
+	static <T> ConfigSnapshot<T> publish(AtomicReference<ConfigSnapshot<T>> ref, ConfigSnapshot<T> prepared,
+			long fingerprint) {
+		STARTED.incrementAndGet();
+		try {
+			return ref.updateAndGet((previous) -> new ConfigSnapshot<>(prepared.config,
+					previous == null ? 1 : previous.version + 1, fingerprint, prepared.derived));
+		} finally {
+			FINISHED.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Read the current snapshots of several managers as one consistent set: no
+	 * publication to any config happened between the reads. Never blocks; if a
+	 * publication races with it the reads are simply retried.
+	 *
+	 * @param managers
+	 * @return the snapshots, in the same order as the managers
+	 */
+	public static ConfigSnapshot<?>[] readConsistent(ConfigManager<?>... managers) {
+		ConfigSnapshot<?>[] snapshots = new ConfigSnapshot<?>[managers.length];
+		for (int attempt = 0;; attempt++) {
+			long finished = FINISHED.get();
+			long started = STARTED.get();
+			if (started == finished) {
+				for (int i = 0; i < managers.length; i++)
+					snapshots[i] = managers[i].getSnapshot();
+				if (STARTED.get() == started)
+					return snapshots;
+			}
+			if (attempt > 16)
+				Thread.yield();
+		}
+	}
+}
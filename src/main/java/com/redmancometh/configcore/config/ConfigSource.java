@@ -0,0 +1,75 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The content of a config file, read once and then hashed, parsed and cached
+ * from the same bytes.
+ *
+ * Opt-in: with {@code -Dconfigcore.mapThreshold=<bytes>}, files at least that
+ * big are memory mapped instead of copied onto the heap, which keeps
+ * multi-megabyte generated configs from being copied around on every reload.
+ * A mapping lasts until its buffer is collected, and on Windows it keeps the
+ * file from being replaced until then, so a save right after a reload can
+ * fail. It's off by default for that reason; only turn it on for large
+ * configs that are never saved, or off Windows.
+ *
+ * @author Redmancometh
+ *
+ */
+final class ConfigSource {
+	static final long MAP_THRESHOLD = Long.getLong("configcore.mapThreshold", Long.MAX_VALUE);
+	private final ByteBuffer data;
+	private final boolean mapped;
+
+	private ConfigSource(ByteBuffer data, boolean mapped) {
+		this.data = data;
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Read a file, mapping it if mapping is on and it's large enough.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	static ConfigSource read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			// A mapping outlives the channel, it's released once the buffer is collected
+			if (size >= MAP_THRESHOLD && size <= Integer.MAX_VALUE)
+				return new ConfigSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), true);
+		}
+		return of(Files.readAllBytes(path));
+	}
+
+	static ConfigSource of(byte[] data) {
+		return new ConfigSource(ByteBuffer.wrap(data), false);
+	}
+
+	long fingerprint() {
+		return XXHash64.hash(data, 0);
+	}
+
+	/**
+	 * @return a new reader decoding the content as UTF-8 from the start
+	 */
+	Reader reader() {
+		return new Utf8BufferReader(data.duplicate());
+	}
+
+	int size() {
+		return data.remaining();
+	}
+
+	boolean isMapped() {
+		return mapped;
+	}
+}
@@ -0,0 +1,19 @@
+package com.redmancometh.configcore.config;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Handed the JSON every published config was built from. See
+ * {@link ConfigManager#addTreeListener(ConfigTreeListener)}.
+ *
+ * @author Redmancometh
+ *
+ */
+@FunctionalInterface
+public interface ConfigTreeListener {
+	/**
+	 * @param tree        the whole config as JSON, shared and not to be changed
+	 * @param fingerprint content hash of the file it's from
+	 */
+	void onTree(JsonElement tree, long fingerprint);
+}
@@ -0,0 +1,71 @@
+package com.redmancometh.configcore.config;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a task once things have been quiet for the configured delay. Every
+ * trigger inside the quiet period pushes the run back, so a burst of triggers
+ * collapses into a single run.
+ *
+ * @author Redmancometh
+ *
+ */
+public class Debouncer {
+	private final Runnable task;
+	private volatile long delayMillis;
+	private ScheduledFuture<?> pending;
+	private long generation;
+
+	public Debouncer(Runnable task, long delay, TimeUnit unit) {
+		this.task = task;
+		this.delayMillis = unit.toMillis(delay);
+	}
+
+	public synchronized void trigger() {
+		if (pending != null)
+			pending.cancel(false);
+		long scheduled = ++generation;
+		pending = ConfigExecutors.scheduler().schedule(() -> fire(scheduled), delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Run a pending task right away on the calling thread instead of waiting out
+	 * the quiet period. Does nothing if nothing is pending.
+	 */
+	public void flush() {
+		synchronized (this) {
+			if (pending == null || !pending.cancel(false))
+				return;
+			pending = null;
+		}
+		task.run();
+	}
+
+	public synchronized void cancel() {
+		if (pending != null)
+			pending.cancel(false);
+		pending = null;
+	}
+
+	public synchronized boolean isPending() {
+		return pending != null;
+	}
+
+	public void setDelay(long delay, TimeUnit unit) {
+		this.delayMillis = unit.toMillis(delay);
+	}
+
+	private void fire(long scheduled) {
+		synchronized (this) {
+			// A trigger that raced with this run has already scheduled its own
+			if (scheduled == generation)
+				pending = null;
+		}
+		try {
+			task.run();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
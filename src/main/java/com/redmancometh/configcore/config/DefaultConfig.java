@@ -0,0 +1,76 @@
+package com.redmancometh.configcore.config;
+
+import java.nio.file.Path;
+
+/**
+ * A default config looked at by {@link DefaultConfigs#extract}, with what's
+ * on disk for it afterwards. Hand it to the config's manager with
+ * {@code seed} so the first load doesn't read the file again.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class DefaultConfig {
+	public enum Status {
+		/**
+		 * The file didn't exist and was written
+		 */
+		EXTRACTED,
+		/**
+		 * The file was the previous default, untouched, and the jar has a new one
+		 */
+		UPDATED,
+		/**
+		 * The file already was the jar's default
+		 */
+		UNCHANGED,
+		/**
+		 * The file was edited since it was extracted, so it was left alone
+		 */
+		KEPT,
+		/**
+		 * The jar doesn't have the file, and nothing was written
+		 */
+		MISSING
+	}
+
+	private final String name;
+	private final Path file;
+	private final Status status;
+	private final byte[] data;
+
+	DefaultConfig(String name, Path file, Status status, byte[] data) {
+		this.name = name;
+		this.file = file;
+		this.status = status;
+		this.data = data;
+	}
+
+	/**
+	 * @return the file's name in the jar
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the content of the file as it is on disk now, or null if it's
+	 *         {@link Status#MISSING}. Not copied, so don't change it.
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	@Override
+	public String toString() {
+		return file + " (" + status + ")";
+	}
+}
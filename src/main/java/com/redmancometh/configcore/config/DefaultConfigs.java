@@ -0,0 +1,173 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Extracts the default configs bundled in a plugin's jar. The jar is opened
+ * once as a zip file system and every file is extracted in parallel on
+ * {@link ConfigExecutors#io()}.
+ *
+ * Files are compared by CRC32, which the jar already stores for every entry,
+ * so a file that's already the jar's default is skipped without reading the
+ * entry. The CRC of every default extracted is kept in
+ * {@code .cache/defaults.crc} under the directory, so a file nobody edited is
+ * replaced by the new default when the plugin updates, while an edited one is
+ * left alone.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class DefaultConfigs {
+	private static final String MANIFEST = "defaults.crc";
+
+	private DefaultConfigs() {
+	}
+
+	/**
+	 * @param owner     a class from the plugin's jar
+	 * @param directory where the configs go, like {@code config}
+	 * @param names     the files, relative to the root of the jar; each is
+	 *                  extracted to the same path under the directory
+	 * @return what's on disk for each file afterwards, in the order given
+	 * @throws IOException if the jar can't be opened, or a file can't be written
+	 */
+	public static List<DefaultConfig> extract(Class<?> owner, Path directory, Collection<String> names)
+			throws IOException {
+		Path source;
+		try {
+			source = Paths.get(owner.getProtectionDomain().getCodeSource().getLocation().toURI());
+		} catch (URISyntaxException | NullPointerException e) {
+			throw new IOException("Can't locate the jar of " + owner.getName(), e);
+		}
+		// Classes run from a directory in development, with the defaults next to them
+		if (Files.isDirectory(source))
+			return extract(source, directory, names);
+		try (FileSystem jar = FileSystems.newFileSystem(source, (ClassLoader) null)) {
+			return extract(jar.getPath("/"), directory, names);
+		}
+	}
+
+	private static List<DefaultConfig> extract(Path root, Path directory, Collection<String> names)
+			throws IOException {
+		Path manifestFile = directory.resolve(".cache").resolve(MANIFEST);
+		Properties manifest = readManifest(manifestFile);
+		List<CompletableFuture<DefaultConfig>> futures = names.stream().map((name) -> CompletableFuture
+				.supplyAsync(() -> extractOne(root, directory, name, manifest), ConfigExecutors.io()))
+				.collect(Collectors.toList());
+		List<DefaultConfig> extracted = new ArrayList<>(futures.size());
+		try {
+			for (CompletableFuture<DefaultConfig> future : futures)
+				extracted.add(future.join());
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw e;
+		}
+		boolean changed = false;
+		for (DefaultConfig config : extracted) {
+			if (config.getStatus() == DefaultConfig.Status.MISSING || config.getStatus() == DefaultConfig.Status.KEPT)
+				continue;
+			String crc = Long.toHexString(crc(config.getData()));
+			changed |= !crc.equals(manifest.setProperty(config.getName(), crc));
+		}
+		if (changed)
+			writeManifest(manifestFile, manifest);
+		return extracted;
+	}
+
+	private static DefaultConfig extractOne(Path root, Path directory, String name, Properties manifest) {
+		String relative = name.startsWith("/") ? name.substring(1) : name;
+		Path entry = root.resolve(relative);
+		Path target = directory.resolve(relative);
+		try {
+			if (!Files.exists(entry))
+				return new DefaultConfig(name, target, DefaultConfig.Status.MISSING, null);
+			long defaultCrc = entryCrc(entry);
+			byte[] existing = readIfExists(target);
+			DefaultConfig.Status status;
+			if (existing == null) {
+				status = DefaultConfig.Status.EXTRACTED;
+			} else {
+				long existingCrc = crc(existing);
+				if (existingCrc == defaultCrc)
+					return new DefaultConfig(name, target, DefaultConfig.Status.UNCHANGED, existing);
+				// Only replace what's exactly the default extracted last time
+				String extractedCrc = manifest.getProperty(name);
+				if (extractedCrc == null || !extractedCrc.equals(Long.toHexString(existingCrc)))
+					return new DefaultConfig(name, target, DefaultConfig.Status.KEPT, existing);
+				status = DefaultConfig.Status.UPDATED;
+			}
+			byte[] data = Files.readAllBytes(entry);
+			AtomicFiles.write(target, data);
+			ConfigMetrics.of(target).defaultsCopied(target);
+			return new DefaultConfig(name, target, status, data);
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * @return the CRC the jar stores for the entry, or the one of its content
+	 *         when it isn't in a jar
+	 */
+	private static long entryCrc(Path entry) throws IOException {
+		try {
+			Object stored = Files.getAttribute(entry, "zip:crc");
+			if (stored instanceof Long)
+				return (Long) stored;
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			// Not in a zip file system
+		}
+		return crc(Files.readAllBytes(entry));
+	}
+
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return crc.getValue();
+	}
+
+	private static byte[] readIfExists(Path file) throws IOException {
+		try {
+			return Files.readAllBytes(file);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	private static Properties readManifest(Path file) throws IOException {
+		Properties manifest = new Properties();
+		byte[] data = readIfExists(file);
+		if (data != null) {
+			try (Reader in = new StringReader(new String(data, StandardCharsets.UTF_8))) {
+				manifest.load(in);
+			}
+		}
+		return manifest;
+	}
+
+	private static void writeManifest(Path file, Properties manifest) throws IOException {
+		StringWriter out = new StringWriter();
+		manifest.store(out, "CRC32 of the defaults last extracted, to tell them apart from edited files");
+		AtomicFiles.write(file, out.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,70 @@
+package com.redmancometh.configcore.config;
+
+import java.util.function.Function;
+
+/**
+ * Something built from a config, like a {@code Material} to price map or a
+ * spatial index of its locations, kept with every snapshot the config is
+ * published in. See {@link ConfigManager#derive(Function)}.
+ *
+ * The function is only ever given a published config, once per snapshot, and
+ * must not change it. Whatever it returns is shared by every reader of that
+ * snapshot, so treat it as read-only too.
+ *
+ * @author Redmancometh
+ *
+ * @param <T> the config
+ * @param <D> what's derived from it
+ */
+public final class DerivedView<T, D> {
+	private final ConfigManager<T> manager;
+	/**
+	 * The view this one is derived from, or null if it's derived from the config
+	 */
+	private final DerivedView<T, ?> parent;
+	private final Function<Object, ? extends D> function;
+
+	@SuppressWarnings("unchecked")
+	DerivedView(ConfigManager<T> manager, DerivedView<T, ?> parent, Function<?, ? extends D> function) {
+		this.manager = manager;
+		this.parent = parent;
+		this.function = (Function<Object, ? extends D>) function;
+	}
+
+	D compute(ConfigSnapshot<T> snapshot) {
+		return function.apply(parent == null ? snapshot.getConfig() : snapshot.get(parent));
+	}
+
+	/**
+	 * @return the view of the live config, or null if nothing was loaded yet. To
+	 *         read the config along with it, read both from one
+	 *         {@link ConfigManager#getSnapshot()} instead.
+	 */
+	public D get() {
+		ConfigSnapshot<T> snapshot = manager.getSnapshot();
+		return snapshot == null ? null : snapshot.get(this);
+	}
+
+	/**
+	 * Derive another view from this one, built after it out of its value rather
+	 * than out of the config, for indexes that build on each other.
+	 *
+	 * @param function
+	 * @return
+	 */
+	public <E> DerivedView<T, E> derive(Function<? super D, ? extends E> function) {
+		return manager.derive(this, function);
+	}
+
+	/**
+	 * Stop building this view for new snapshots. Views derived from it keep
+	 * building it as they need it.
+	 */
+	public void remove() {
+		manager.removeView(this);
+	}
+
+	public ConfigManager<T> getManager() {
+		return manager;
+	}
+}
@@ -1,20 +1,28 @@
 package com.redmancometh.configcore.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Map;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import org.apache.commons.io.FileUtils;
 
 /**
+ * Polls a directory tree for changed files. Each tick only stats the files;
+ * content is hashed when a file's size, mtime or inode moved. Files that were
+ * seen before and are gone are reported as deleted.
+ * 
+ * Ticks are timed by the shared config scheduler and run, along with the
+ * callbacks, on a lane of the config workers, so there's no thread of its own
+ * to leak and slow callbacks only delay this watcher.
  * 
  * @author Redmancometh
  *
@@ -22,8 +30,11 @@ import org.apache.commons.io.FileUtils;
 public class DirectoryWatcher {
 	private String monitored;
 	private Consumer<File> onChangedCallback;
-	private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-	private Map<String, String> hashMap = new ConcurrentHashMap<>();
+	private Consumer<File> onDeletedCallback;
+	private final Set<Path> seen = ConcurrentHashMap.newKeySet();
+	private final Executor lane = ConfigExecutors.lane();
+	private final AtomicBoolean tickPending = new AtomicBoolean();
+	private ChangeDetector detector = new ChangeDetector();
 	private ScheduledFuture<?> future;
 	private String[] extensions;
 
@@ -36,7 +47,22 @@ public class DirectoryWatcher {
 	 * @param monitored
 	 */
 	public DirectoryWatcher(Consumer<File> onChanged, String monitored, String... extensions) {
+		this(onChanged, null, monitored, extensions);
+	}
+
+	/**
+	 * Same as {@link #DirectoryWatcher(Consumer, String, String...)}, also telling
+	 * the onDeleted callback about files that went away.
+	 * 
+	 * @param onChanged
+	 * @param onDeleted
+	 * @param monitored
+	 * @param extensions
+	 */
+	public DirectoryWatcher(Consumer<File> onChanged, Consumer<File> onDeleted, String monitored,
+			String... extensions) {
 		this.onChangedCallback = onChanged;
+		this.onDeletedCallback = onDeleted;
 		this.monitored = monitored;
 		this.extensions = extensions;
 	}
@@ -45,45 +71,87 @@ public class DirectoryWatcher {
 	 * Turn it on.
 	 */
 	public void start() {
-		this.future = scheduler.scheduleAtFixedRate(() -> {
-			FileUtils.listFiles(new File(monitored), extensions, true).forEach((file) -> {
-				if (hasChanged(file))
-					onChangedCallback.accept(file);
-			});
+		this.future = ConfigExecutors.scheduler().scheduleAtFixedRate(() -> {
+			// A tick that's still running or queued makes this one skip a beat
+			if (tickPending.compareAndSet(false, true))
+				lane.execute(this::tick);
 		}, 1, 1, TimeUnit.SECONDS);
+	}
+
+	private void tick() {
+		long start = System.nanoTime();
+		try {
+			scan();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			tickPending.set(false);
+		}
+		ConfigMetrics.of(Paths.get(monitored)).watcherTicked(System.nanoTime() - start);
+	}
 
+	private void scan() {
+		File directory = new File(monitored);
+		Set<Path> present = new HashSet<>();
+		if (directory.isDirectory()) {
+			for (File file : FileUtils.listFiles(directory, extensions, true)) {
+				present.add(key(file));
+				if (hasChanged(file))
+					onChangedCallback.accept(file);
+			}
+		}
+		for (Path file : seen) {
+			if (present.contains(file))
+				continue;
+			seen.remove(file);
+			detector.forget(file);
+			if (onDeletedCallback != null)
+				onDeletedCallback.accept(file.toFile());
+		}
 	}
 
 	/**
-	 * Turn it off. May throw an execption.
+	 * Turn it off. A tick that's already running finishes.
 	 */
 	public void stop() {
-		future.cancel(true);
+		if (future != null)
+			future.cancel(false);
 	}
 
 	public String getHash(File file) {
-		try (FileInputStream fis = new FileInputStream(file)) {
-			String sha1 = org.apache.commons.codec.digest.DigestUtils.sha1Hex(fis);
-			return sha1;
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+		try {
+			return Long.toHexString(ChangeDetector.hash(file.toPath()));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 		return null;
 	}
 
+	/**
+	 * Files seen for the first time count as changed.
+	 * 
+	 * @param file
+	 * @return
+	 */
 	public boolean hasChanged(File file) {
-		boolean hasHash = this.hashMap.containsKey(file.getName());
-		String newHash = getHash(file);
-		String lastHash = this.hashMap.getOrDefault(file.getName(), getHash(file));
-		boolean isEqual = newHash.equals(lastHash);
-		hashMap.put(file.getName(), newHash);
-		if (!hasHash)
-			return true;
-		if (isEqual)
-			return false;
-		return true;
+		seen.add(key(file));
+		return detector.hasChanged(file.toPath());
+	}
+
+	/**
+	 * Record the file as it is now without reporting it, for files that were
+	 * loaded before the watcher started. Prime before reading the file, so a
+	 * change made while it's read is still picked up.
+	 * 
+	 * @param file
+	 */
+	public void prime(File file) {
+		seen.add(key(file));
+		detector.prime(file.toPath());
+	}
+
+	private static Path key(File file) {
+		return file.toPath().toAbsolutePath().normalize();
 	}
 
 }
@@ -0,0 +1,249 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.Effect;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.EntityType;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.redmancometh.configcore.config.validation.ValidationScope;
+
+/**
+ * Reads every enum the way the old Material/Effect/EntityType/BlockFace
+ * adapters did: case-insensitively, with spaces standing in for underscores,
+ * so {@code "diamond sword"} is {@code DIAMOND_SWORD}. Each enum gets a lookup
+ * table built once; a value is resolved by hashing and comparing it char by
+ * char with the normalization applied on the fly, so no uppercased or replaced
+ * copy of it is made.
+ *
+ * {@link SerializedName} names and alternates are honored like in Gson's own
+ * enum adapter. Unknown values are read as null, as Gson does, except for the
+ * enums that had their own adapter before, which always rejected them. A
+ * strict factory rejects them for every enum. Rejected values are reported to
+ * the open {@link ValidationScope} with the value and where in the file it is.
+ *
+ * Adapters are kept in a {@link ClassValue}, so they go away with the enum's
+ * class loader when a plugin is reloaded.
+ *
+ * @author Redmancometh
+ *
+ */
+public class EnumLookupAdapterFactory implements TypeAdapterFactory {
+	private static final Set<Class<?>> ALWAYS_STRICT = new HashSet<>(
+			Arrays.asList(BlockFace.class, Effect.class, EntityType.class, Material.class));
+	private static final ClassValue<EnumAdapter<?>> lenientAdapters = adapters(false);
+	private static final ClassValue<EnumAdapter<?>> strictAdapters = adapters(true);
+	private final boolean strictAll;
+
+	public EnumLookupAdapterFactory() {
+		this(false);
+	}
+
+	/**
+	 * @param strict reject unknown values of every enum instead of reading them
+	 *               as null
+	 */
+	public EnumLookupAdapterFactory(boolean strict) {
+		this.strictAll = strict;
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		Class<? super T> raw = type.getRawType();
+		if (!Enum.class.isAssignableFrom(raw) || raw == Enum.class)
+			return null;
+		// Constants with a body are anonymous subclasses of the enum
+		if (!raw.isEnum())
+			raw = raw.getSuperclass();
+		return (TypeAdapter<T>) adapterFor((Class) raw, strictAll);
+	}
+
+	/**
+	 * The shared adapter for the given enum, for use outside of a Gson. It's
+	 * lenient unless the enum had its own adapter before.
+	 *
+	 * @param enumType
+	 * @return
+	 */
+	public static <E extends Enum<E>> TypeAdapter<E> adapterFor(Class<E> enumType) {
+		return adapterFor(enumType, false);
+	}
+
+	/**
+	 * @param enumType
+	 * @param strict   reject unknown values instead of reading them as null
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends Enum<E>> TypeAdapter<E> adapterFor(Class<E> enumType, boolean strict) {
+		return (TypeAdapter<E>) (strict || ALWAYS_STRICT.contains(enumType) ? strictAdapters
+				: lenientAdapters).get(enumType);
+	}
+
+	private static ClassValue<EnumAdapter<?>> adapters(boolean strict) {
+		return new ClassValue<EnumAdapter<?>>() {
+			@Override
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			protected EnumAdapter<?> computeValue(Class<?> type) {
+				return new EnumAdapter(type, strict);
+			}
+		};
+	}
+
+	private static char normalize(char c) {
+		return c == ' ' ? '_' : Character.toUpperCase(c);
+	}
+
+	private static final class EnumAdapter<E extends Enum<E>> extends TypeAdapter<E> {
+		private final Class<E> enumType;
+		private final boolean strict;
+		private final Map<String, E> exact = new HashMap<>();
+		private final Map<E, String> names;
+		/**
+		 * Open addressing table of normalized names, probed linearly.
+		 */
+		private final String[] keys;
+		private final Object[] values;
+		private final int mask;
+
+		private EnumAdapter(Class<E> enumType, boolean strict) {
+			this.enumType = enumType;
+			this.strict = strict;
+			this.names = new EnumMap<>(enumType);
+			E[] constants = enumType.getEnumConstants();
+			SerializedName[] annotations = new SerializedName[constants.length];
+			int count = constants.length;
+			for (int i = 0; i < constants.length; i++) {
+				annotations[i] = serializedName(constants[i]);
+				if (annotations[i] != null)
+					count += annotations[i].alternate().length;
+			}
+			// Kept at most a quarter full so probes stay short
+			keys = new String[Math.max(4, Integer.highestOneBit(count * 4 - 1) << 1)];
+			values = new Object[keys.length];
+			mask = keys.length - 1;
+			for (int i = 0; i < constants.length; i++) {
+				String name = constants[i].name();
+				if (annotations[i] != null) {
+					name = annotations[i].value();
+					for (String alternate : annotations[i].alternate())
+						add(alternate, constants[i]);
+				}
+				add(name, constants[i]);
+				names.put(constants[i], name);
+			}
+		}
+
+		private void add(String name, E constant) {
+			exact.putIfAbsent(name, constant);
+			int slot = hash(name) & mask;
+			while (keys[slot] != null) {
+				if (matches(keys[slot], name))
+					return;
+				slot = (slot + 1) & mask;
+			}
+			StringBuilder normalized = new StringBuilder(name.length());
+			for (int i = 0; i < name.length(); i++)
+				normalized.append(normalize(name.charAt(i)));
+			keys[slot] = normalized.toString();
+			values[slot] = constant;
+		}
+
+		@SuppressWarnings("unchecked")
+		private E lookup(String value) {
+			E constant = exact.get(value);
+			if (constant != null)
+				return constant;
+			int slot = hash(value) & mask;
+			String key;
+			while ((key = keys[slot]) != null) {
+				if (matches(key, value))
+					return (E) values[slot];
+				slot = (slot + 1) & mask;
+			}
+			return null;
+		}
+
+		private static int hash(String value) {
+			int hash = 0;
+			for (int i = 0; i < value.length(); i++)
+				hash = 31 * hash + normalize(value.charAt(i));
+			// Spread the high bits down, the table is indexed by the low ones
+			return hash ^ (hash >>> 16);
+		}
+
+		/**
+		 * @param key   an already normalized name
+		 * @param value the raw value
+		 */
+		private static boolean matches(String key, String value) {
+			if (key.length() != value.length())
+				return false;
+			for (int i = 0; i < key.length(); i++)
+				if (key.charAt(i) != normalize(value.charAt(i)))
+					return false;
+			return true;
+		}
+
+		private SerializedName serializedName(E constant) {
+			try {
+				Field field = enumType.getField(constant.name());
+				return field.getAnnotation(SerializedName.class);
+			} catch (NoSuchFieldException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public E read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			String value = in.nextString();
+			E constant = lookup(value);
+			if (constant == null && strict) {
+				ValidationScope scope = ValidationScope.current();
+				String path = valuePath(in);
+				ValidationScope.report(scope == null ? path : scope.resolve(path),
+						"unknown " + enumType.getSimpleName() + " \"" + value + "\"");
+			}
+			return constant;
+		}
+
+		/**
+		 * The path of the value just read. The reader has already moved past it,
+		 * which in an array means on to the next index.
+		 */
+		private static String valuePath(JsonReader in) {
+			String path = in.getPath();
+			if (!path.endsWith("]"))
+				return path;
+			int open = path.lastIndexOf('[');
+			int index = Integer.parseInt(path.substring(open + 1, path.length() - 1));
+			return path.substring(0, open + 1) + (index - 1) + "]";
+		}
+
+		@Override
+		public void write(JsonWriter out, E value) throws IOException {
+			out.value(value == null ? null : names.get(value));
+		}
+	}
+}
@@ -1,16 +1,15 @@
 package com.redmancometh.configcore.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Path;
 import java.util.function.Consumer;
 
 /**
+ * Watches a single file through the shared {@link WatchEngine}. The file is
+ * only looked at when the engine reports an event for it, and the content is
+ * only hashed when its size, mtime or inode moved, so an idle watcher costs
+ * neither a thread nor any reads.
  * 
  * @author Redmancometh
  *
@@ -18,14 +17,22 @@ import java.util.function.Consumer;
 public class FileWatcher {
 	private File monitored;
 	private Consumer<File> onChangedCallback;
-	private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-	private String lastHash;
-	private ScheduledFuture<?> future;
+	private ChangeDetector detector = new ChangeDetector();
+	private final Consumer<Path> eventListener = (path) -> {
+		ConfigMetrics metrics = ConfigMetrics.of(monitored.toPath());
+		long start = System.nanoTime();
+		boolean changed = hasChanged();
+		metrics.watcherTicked(System.nanoTime() - start);
+		if (changed) {
+			metrics.changeDetected();
+			onChangedCallback.accept(monitored);
+		}
+	};
 
 	/**
 	 * Create a file watcher to watch for changes on the given file, and execute the
-	 * given callback. Until start is called the underlying scheduler will not run
-	 * and this will not work, so make sure to call start!
+	 * given callback. Until start is called the file is not registered with the
+	 * watch engine and this will not work, so make sure to call start!
 	 * 
 	 * @param onChanged
 	 * @param monitored
@@ -33,33 +40,36 @@ public class FileWatcher {
 	public FileWatcher(Consumer<File> onChanged, File monitored) {
 		this.onChangedCallback = onChanged;
 		this.monitored = monitored;
-		this.lastHash = getHash();
+		detector.prime(monitored.toPath());
 	}
 
 	/**
 	 * Turn it on.
 	 */
 	public void start() {
-		this.future = scheduler.scheduleAtFixedRate(() -> {
-			if (hasChanged())
-				onChangedCallback.accept(monitored);
-		}, 1, 1, TimeUnit.SECONDS);
-
+		WatchEngine.getInstance().watch(monitored.toPath(), eventListener);
 	}
 
 	/**
-	 * Turn it off. May throw an execption.
+	 * Turn it off.
 	 */
 	public void stop() {
-		future.cancel(true);
+		WatchEngine.getInstance().unwatch(monitored.toPath(), eventListener);
+	}
+
+	/**
+	 * Don't report the change caused by writing content with this hash to the
+	 * file.
+	 * 
+	 * @param hash
+	 */
+	public void expect(long hash) {
+		detector.expect(monitored.toPath(), hash);
 	}
 
 	public String getHash() {
-		try (FileInputStream fis = new FileInputStream(monitored)) {
-			String sha1 = org.apache.commons.codec.digest.DigestUtils.sha1Hex(fis);
-			return sha1;
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+		try {
+			return Long.toHexString(ChangeDetector.hash(monitored.toPath()));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -67,13 +77,7 @@ public class FileWatcher {
 	}
 
 	public boolean hasChanged() {
-		String newHash = getHash();
-		if (newHash.equals(lastHash)) {
-			this.lastHash = newHash;
-			return false;
-		}
-		this.lastHash = newHash;
-		return true;
+		return detector.hasChanged(monitored.toPath());
 	}
 
 }
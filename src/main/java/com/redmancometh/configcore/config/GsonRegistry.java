@@ -0,0 +1,91 @@
+package com.redmancometh.configcore.config;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.redmancometh.configcore.config.validation.ValidatingTypeAdapterFactory;
+
+import lombok.Value;
+
+/**
+ * Shares Gson instances between config managers. Gson caches the adapters it
+ * builds for every type it has seen, so managers with the same adapters and
+ * naming policy share one instance and only introspect each POJO class once.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class GsonRegistry {
+	private static final Map<Key, Gson> gsons = new ConcurrentHashMap<>();
+
+	private GsonRegistry() {
+	}
+
+	public static Gson get(AdapterSet adapters, FieldNamingPolicy namingPolicy) {
+		return gsons.computeIfAbsent(new Key(adapters, namingPolicy),
+				(key) -> configure(new GsonBuilder(), adapters, namingPolicy).create());
+	}
+
+	/**
+	 * @return the Gson every {@link ConfigManager} uses by default
+	 */
+	public static Gson standard() {
+		return get(AdapterSet.STANDARD, FieldNamingPolicy.LOWER_CASE_WITH_DASHES);
+	}
+
+	/**
+	 * Apply the settings shared by every config Gson plus the given adapters to a
+	 * builder.
+	 * 
+	 * @param builder
+	 * @param adapters
+	 * @param namingPolicy
+	 * @return
+	 */
+	public static GsonBuilder configure(GsonBuilder builder, AdapterSet adapters, FieldNamingPolicy namingPolicy) {
+		builder.excludeFieldsWithModifiers(Modifier.PROTECTED).setFieldNamingPolicy(namingPolicy)
+				.registerTypeAdapterFactory(new StreamingMapTypeAdapterFactory())
+				.registerTypeAdapterFactory(new LazyTypeAdapterFactory())
+				.registerTypeAdapterFactory(new CompiledTypeAdapterFactory())
+				.registerTypeAdapterFactory(new ValidatingTypeAdapterFactory());
+		return adapters.apply(builder).setPrettyPrinting();
+	}
+
+	/**
+	 * Build the adapters for the given config classes now, so the first parse
+	 * doesn't pay for the reflection. Adapters for field types are built along
+	 * with the class that holds them.
+	 * 
+	 * @param gson
+	 * @param classes
+	 */
+	public static void prewarm(Gson gson, Class<?>... classes) {
+		for (Class<?> clazz : classes)
+			gson.getAdapter(clazz);
+	}
+
+	/**
+	 * Same as {@link #prewarm(Gson, Class...)}, in parallel on the config I/O pool.
+	 * 
+	 * @param gson
+	 * @param classes
+	 * @return
+	 */
+	public static CompletableFuture<Void> prewarmAsync(Gson gson, Class<?>... classes) {
+		return CompletableFuture.allOf(Arrays.stream(classes)
+				.map((clazz) -> CompletableFuture.runAsync(() -> gson.getAdapter(clazz), ConfigExecutors.io()))
+				.toArray(CompletableFuture[]::new));
+	}
+
+	@Value
+	private static class Key {
+		AdapterSet adapters;
+		FieldNamingPolicy namingPolicy;
+	}
+}
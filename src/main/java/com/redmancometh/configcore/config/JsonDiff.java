@@ -0,0 +1,75 @@
+package com.redmancometh.configcore.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.redmancometh.configcore.config.ConfigChange.Kind;
+
+/**
+ * Structural diff of two JSON trees in one walk over both. Objects are
+ * compared member by member and arrays index by index; anything else that
+ * differs, or a value that changed shape, is reported where it is as a whole.
+ *
+ * @author Redmancometh
+ *
+ */
+final class JsonDiff {
+	private JsonDiff() {
+	}
+
+	static List<ConfigChange> diff(JsonElement before, JsonElement after, Gson gson) {
+		List<ConfigChange> changes = new ArrayList<>();
+		diff(new StringBuilder(), before, after, changes, gson);
+		return changes;
+	}
+
+	/**
+	 * @param path the path so far, only turned into a string for a change and
+	 *             restored before returning
+	 */
+	private static void diff(StringBuilder path, JsonElement before, JsonElement after, List<ConfigChange> changes,
+			Gson gson) {
+		if (before == null) {
+			if (after != null)
+				changes.add(new ConfigChange(Kind.ADDED, path.toString(), null, after, gson));
+			return;
+		}
+		if (after == null) {
+			changes.add(new ConfigChange(Kind.REMOVED, path.toString(), before, null, gson));
+			return;
+		}
+		int mark = path.length();
+		if (before.isJsonObject() && after.isJsonObject()) {
+			JsonObject oldObject = before.getAsJsonObject();
+			JsonObject newObject = after.getAsJsonObject();
+			for (Map.Entry<String, JsonElement> member : oldObject.entrySet()) {
+				diff(member(path, member.getKey()), member.getValue(), newObject.get(member.getKey()), changes, gson);
+				path.setLength(mark);
+			}
+			for (Map.Entry<String, JsonElement> member : newObject.entrySet()) {
+				if (!oldObject.has(member.getKey()))
+					diff(member(path, member.getKey()), null, member.getValue(), changes, gson);
+				path.setLength(mark);
+			}
+		} else if (before.isJsonArray() && after.isJsonArray()) {
+			JsonArray oldArray = before.getAsJsonArray();
+			JsonArray newArray = after.getAsJsonArray();
+			for (int i = 0; i < Math.max(oldArray.size(), newArray.size()); i++) {
+				diff(path.append('[').append(i).append(']'), i < oldArray.size() ? oldArray.get(i) : null,
+						i < newArray.size() ? newArray.get(i) : null, changes, gson);
+				path.setLength(mark);
+			}
+		} else if (!before.equals(after)) {
+			changes.add(new ConfigChange(Kind.CHANGED, path.toString(), before, after, gson));
+		}
+	}
+
+	private static StringBuilder member(StringBuilder path, String name) {
+		return path.length() == 0 ? path.append(name) : path.append('.').append(name);
+	}
+}
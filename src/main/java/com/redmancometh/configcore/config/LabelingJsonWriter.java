@@ -0,0 +1,157 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Forwards everything to another writer, adding a type label as the first
+ * member of the outermost object written through it.
+ *
+ * @author Redmancometh
+ *
+ */
+final class LabelingJsonWriter extends JsonWriter {
+	private static final Writer UNWRITABLE_WRITER = new Writer() {
+		@Override
+		public void write(char[] buffer, int offset, int counter) {
+			throw new AssertionError();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			throw new AssertionError();
+		}
+
+		@Override
+		public void close() throws IOException {
+			throw new AssertionError();
+		}
+	};
+	private final JsonWriter out;
+	private final String typeFieldName;
+	private final String label;
+	private final Class<?> srcType;
+	private int depth;
+
+	LabelingJsonWriter(JsonWriter out, String typeFieldName, String label, Class<?> srcType) {
+		super(UNWRITABLE_WRITER);
+		this.out = out;
+		this.typeFieldName = typeFieldName;
+		this.label = label;
+		this.srcType = srcType;
+	}
+
+	@Override
+	public JsonWriter beginObject() throws IOException {
+		out.beginObject();
+		if (depth++ == 0)
+			out.name(typeFieldName).value(label);
+		return this;
+	}
+
+	@Override
+	public JsonWriter endObject() throws IOException {
+		depth--;
+		out.endObject();
+		return this;
+	}
+
+	@Override
+	public JsonWriter beginArray() throws IOException {
+		checkNested();
+		depth++;
+		out.beginArray();
+		return this;
+	}
+
+	@Override
+	public JsonWriter endArray() throws IOException {
+		depth--;
+		out.endArray();
+		return this;
+	}
+
+	@Override
+	public JsonWriter name(String name) throws IOException {
+		if (depth == 1 && typeFieldName.equals(name))
+			throw new JsonParseException("cannot serialize " + srcType.getName()
+					+ " because it already defines a field named " + typeFieldName);
+		out.name(name);
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(String value) throws IOException {
+		checkNested();
+		out.value(value);
+		return this;
+	}
+
+	@Override
+	public JsonWriter jsonValue(String value) throws IOException {
+		checkNested();
+		out.jsonValue(value);
+		return this;
+	}
+
+	@Override
+	public JsonWriter nullValue() throws IOException {
+		checkNested();
+		out.nullValue();
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(boolean value) throws IOException {
+		checkNested();
+		out.value(value);
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(Boolean value) throws IOException {
+		checkNested();
+		out.value(value);
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(double value) throws IOException {
+		checkNested();
+		out.value(value);
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(long value) throws IOException {
+		checkNested();
+		out.value(value);
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(Number value) throws IOException {
+		checkNested();
+		out.value(value);
+		return this;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void checkNested() {
+		if (depth == 0)
+			throw new JsonParseException(
+					"cannot serialize " + srcType.getName() + " because it isn't written as a JSON object");
+	}
+}
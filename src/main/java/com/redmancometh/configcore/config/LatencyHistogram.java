@@ -0,0 +1,87 @@
+package com.redmancometh.configcore.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Buckets are powers of two
+ * split into 8 steps each, so a percentile is off by at most 12.5%, and
+ * recording is a couple of atomic adds without any allocation.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private final AtomicLongArray buckets = new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		buckets.incrementAndGet(index(nanos));
+		count.increment();
+		total.add(nanos);
+		if (nanos > max.get())
+			max.accumulateAndGet(nanos, Math::max);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotal(TimeUnit unit) {
+		return unit.convert(total.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	public double getMeanMillis() {
+		long recorded = count.sum();
+		return recorded == 0 ? 0 : total.sum() / (double) recorded / 1e6;
+	}
+
+	public double getMaxMillis() {
+		return max.get() / 1e6;
+	}
+
+	/**
+	 * @param quantile between 0 and 1, like 0.99
+	 * @return the upper bound of the bucket the quantile falls in, 0 if nothing
+	 *         was recorded
+	 */
+	public double getPercentileMillis(double quantile) {
+		long recorded = 0;
+		for (int i = 0; i < buckets.length(); i++)
+			recorded += buckets.get(i);
+		if (recorded == 0)
+			return 0;
+		long target = Math.max(1, (long) Math.ceil(quantile * recorded));
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= target)
+				return Math.min(upperBound(i), max.get()) / 1e6;
+		}
+		return max.get() / 1e6;
+	}
+
+	private static int index(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+}
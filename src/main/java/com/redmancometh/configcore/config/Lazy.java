@@ -0,0 +1,99 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * A config section that is only deserialized when it's first asked for. Use it
+ * as a field type for big sections that not every server reads:
+ *
+ * <pre>
+ * private Lazy&lt;Map&lt;String, SpawnTable&gt;&gt; spawnTables;
+ * ...
+ * config.getSpawnTables().get().get("world_nether");
+ * </pre>
+ *
+ * While loading, the section is only tokenized and kept in the compact
+ * {@link BinaryJson} form; {@link #get()} builds the value from that once and
+ * drops it. A section that doesn't fit its type only fails when it's first
+ * read, with a {@link JsonParseException}. The exception is a section with
+ * validation constraints anywhere inside it: that one is deserialized during
+ * the load, so its constraints are checked with the rest of the file.
+ *
+ * @author Redmancometh
+ *
+ * @param <T>
+ */
+public final class Lazy<T> {
+	private volatile boolean loaded;
+	private T value;
+	private byte[] encoded;
+	private TypeAdapter<T> adapter;
+
+	Lazy(byte[] encoded, TypeAdapter<T> adapter) {
+		this.encoded = encoded;
+		this.adapter = adapter;
+	}
+
+	private Lazy(T value) {
+		this.value = value;
+		this.loaded = true;
+	}
+
+	/**
+	 * An already loaded section, for configs built in code.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static <T> Lazy<T> of(T value) {
+		return new Lazy<>(value);
+	}
+
+	/**
+	 * @return the section, deserialized on the first call
+	 * @throws JsonParseException if the section doesn't fit its type
+	 */
+	public T get() {
+		if (!loaded) {
+			synchronized (this) {
+				if (!loaded) {
+					value = decode();
+					encoded = null;
+					adapter = null;
+					loaded = true;
+				}
+			}
+		}
+		return value;
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	private T decode() {
+		try {
+			BinaryJsonReader in = new BinaryJsonReader(ByteBuffer.wrap(encoded));
+			in.setLenient(true);
+			return adapter.read(in);
+		} catch (IOException | IllegalStateException e) {
+			throw new JsonParseException(e);
+		}
+	}
+
+	/**
+	 * Write the section out. One that was never read is copied token by token,
+	 * without being deserialized.
+	 */
+	synchronized void write(JsonWriter out, TypeAdapter<T> elementAdapter) throws IOException {
+		if (loaded)
+			elementAdapter.write(out, value);
+		else
+			LazyTypeAdapterFactory.copy(new BinaryJsonReader(ByteBuffer.wrap(encoded)), out);
+	}
+}
@@ -0,0 +1,155 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.redmancometh.configcore.config.validation.ClassValidator;
+import com.redmancometh.configcore.config.validation.ValidationScope;
+
+/**
+ * Reads {@link Lazy} fields by capturing their section as {@link BinaryJson}
+ * instead of deserializing it. Sections whose type has constraints anywhere
+ * inside it are deserialized right away while a {@link ValidationScope} is
+ * open, so their constraints are checked with the rest of the file. Registered
+ * on every Gson out of the {@link GsonRegistry}.
+ *
+ * @author Redmancometh
+ *
+ */
+public class LazyTypeAdapterFactory implements TypeAdapterFactory {
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		if (type.getRawType() != Lazy.class)
+			return null;
+		Type valueType = type.getType() instanceof ParameterizedType
+				? ((ParameterizedType) type.getType()).getActualTypeArguments()[0]
+				: Object.class;
+		return (TypeAdapter<T>) new LazyAdapter(gson.getAdapter(TypeToken.get(valueType)),
+				constrained(valueType, new HashSet<>()));
+	}
+
+	/**
+	 * Whether the type or anything it can hold, through its fields, type
+	 * arguments and array components, has constraints.
+	 */
+	private static boolean constrained(Type type, Set<Type> seen) {
+		Class<?> raw = $Gson$Types.getRawType(type);
+		if (!seen.add(type) || raw.isPrimitive() || raw.isEnum())
+			return false;
+		if (raw.isArray())
+			return constrained($Gson$Types.getArrayComponentType(type), seen);
+		if (type instanceof ParameterizedType)
+			for (Type argument : ((ParameterizedType) type).getActualTypeArguments())
+				if (constrained(argument, seen))
+					return true;
+		if (raw.isInterface() || raw.getName().startsWith("java."))
+			return false;
+		if (!ClassValidator.of(raw).isEmpty())
+			return true;
+		while (raw != Object.class && raw != null) {
+			for (Field field : raw.getDeclaredFields())
+				if (!Modifier.isStatic(field.getModifiers())
+						&& constrained($Gson$Types.resolve(type, raw, field.getGenericType()), seen))
+					return true;
+			type = $Gson$Types.resolve(type, raw, raw.getGenericSuperclass());
+			raw = $Gson$Types.getRawType(type);
+		}
+		return false;
+	}
+
+	/**
+	 * Copy the value at the reader's position to the writer token by token.
+	 */
+	static void copy(JsonReader in, JsonWriter out) throws IOException {
+		int depth = 0;
+		do {
+			switch (in.peek()) {
+			case BEGIN_OBJECT:
+				in.beginObject();
+				out.beginObject();
+				depth++;
+				break;
+			case END_OBJECT:
+				in.endObject();
+				out.endObject();
+				depth--;
+				break;
+			case BEGIN_ARRAY:
+				in.beginArray();
+				out.beginArray();
+				depth++;
+				break;
+			case END_ARRAY:
+				in.endArray();
+				out.endArray();
+				depth--;
+				break;
+			case NAME:
+				out.name(in.nextName());
+				break;
+			case STRING:
+				out.value(in.nextString());
+				break;
+			case NUMBER:
+				// Kept as written; jsonValue isn't supported when writing to a tree
+				out.value(new LazilyParsedNumber(in.nextString()));
+				break;
+			case BOOLEAN:
+				out.value(in.nextBoolean());
+				break;
+			case NULL:
+				in.nextNull();
+				out.nullValue();
+				break;
+			case END_DOCUMENT:
+				return;
+			}
+		} while (depth > 0);
+	}
+
+	private static final class LazyAdapter<T> extends TypeAdapter<Lazy<T>> {
+		private final TypeAdapter<T> valueAdapter;
+		private final boolean constrained;
+
+		private LazyAdapter(TypeAdapter<T> valueAdapter, boolean constrained) {
+			this.valueAdapter = valueAdapter;
+			this.constrained = constrained;
+		}
+
+		@Override
+		public Lazy<T> read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			// Checking the constraints later, on get(), would be after the scope has
+			// decided the file is valid
+			if (constrained && ValidationScope.current() != null)
+				return Lazy.of(valueAdapter.read(in));
+			return new Lazy<>(BinaryJson.encode(in), valueAdapter);
+		}
+
+		@Override
+		public void write(JsonWriter out, Lazy<T> value) throws IOException {
+			if (value == null)
+				out.nullValue();
+			else
+				value.write(out, valueAdapter);
+		}
+	}
+}
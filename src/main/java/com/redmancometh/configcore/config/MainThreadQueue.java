@@ -0,0 +1,271 @@
+package com.redmancometh.configcore.config;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.redmancometh.configcore.ConfigCore;
+
+/**
+ * Runs work on the server main thread at tick boundaries, no more of it per
+ * tick than the budget ({@code configcore.tickBudget} milliseconds, 5 by
+ * default) allows. Whatever doesn't fit waits for the next tick, so a big
+ * reload spreads over a few ticks instead of stalling one.
+ *
+ * Work is queued under a key, and new work for a key replaces whatever of the
+ * old is still unfinished: a reload listener that's behind skips straight to
+ * the newest config. Tasks take turns a step at a time, so one heavy listener
+ * can't hold up the others.
+ *
+ * How long each step takes is averaged (exponentially weighted) per name, and
+ * a step is only started when its average still fits in what's left of the
+ * tick. At least one step runs every tick, so every task gets done however
+ * small the budget.
+ *
+ * Without a server (like in tests), work runs to completion right away on the
+ * thread that queued it.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class MainThreadQueue {
+	private static final MainThreadQueue INSTANCE = new MainThreadQueue();
+	/**
+	 * Weight of the newest step in the average
+	 */
+	private static final double ALPHA = 0.2;
+	private final Deque<Entry> queue = new ArrayDeque<>();
+	private final Map<Object, Entry> byKey = new HashMap<>();
+	private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+	private volatile long budget = TimeUnit.MILLISECONDS.toNanos(Long.getLong("configcore.tickBudget", 5));
+	private BukkitTask ticker;
+
+	private MainThreadQueue() {
+	}
+
+	public static MainThreadQueue getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Queue work, replacing whatever is still unfinished under the same key.
+	 *
+	 * @param key  what the work is for, like a listener
+	 * @param name what its steps are timed under
+	 * @param task
+	 */
+	public void submit(Object key, String name, TickTask task) {
+		if (Bukkit.getServer() == null) {
+			runNow(name, task);
+			return;
+		}
+		synchronized (this) {
+			Entry previous = byKey.put(key, new Entry(key, name, task));
+			if (previous != null)
+				queue.remove(previous);
+			queue.add(byKey.get(key));
+			if (ticker == null)
+				startTicker();
+		}
+	}
+
+	/**
+	 * Queue work done in one go.
+	 *
+	 * @see #submit(Object, String, TickTask)
+	 */
+	public void submit(Object key, String name, Runnable task) {
+		submit(key, name, () -> {
+			task.run();
+			return true;
+		});
+	}
+
+	private void runNow(String name, TickTask task) {
+		boolean done = false;
+		while (!done)
+			done = step(name, task);
+	}
+
+	/**
+	 * Start ticking through the Bukkit scheduler. A server without one (like a
+	 * headless test server) has to call {@link #tick()} itself.
+	 */
+	private void startTicker() {
+		BukkitScheduler scheduler = Bukkit.getScheduler();
+		if (scheduler != null)
+			ticker = scheduler.runTaskTimer(JavaPlugin.getPlugin(ConfigCore.class), this::tick, 1, 1);
+	}
+
+	/**
+	 * Run queued steps until this tick's budget is spent. Called every tick on
+	 * the main thread while there's work queued.
+	 */
+	public void tick() {
+		long start = System.nanoTime();
+		long deadline = start + budget;
+		boolean ranAny = false;
+		while (true) {
+			Entry entry;
+			synchronized (this) {
+				entry = queue.peek();
+				if (entry == null) {
+					stopTicker();
+					return;
+				}
+			}
+			long now = System.nanoTime();
+			if (ranAny && (now >= deadline || now + timing(entry.name).estimate() > deadline))
+				return;
+			boolean done = step(entry.name, entry.task);
+			ranAny = true;
+			synchronized (this) {
+				// Unless it was replaced meanwhile, to the back of the line or out of it
+				if (queue.peek() == entry) {
+					queue.poll();
+					if (done)
+						byKey.remove(entry.key);
+					else
+						queue.add(entry);
+				}
+			}
+		}
+	}
+
+	private void stopTicker() {
+		if (ticker != null) {
+			ticker.cancel();
+			ticker = null;
+		}
+	}
+
+	/**
+	 * @return whether the task is done, which a task that throws is
+	 */
+	private boolean step(String name, TickTask task) {
+		long start = System.nanoTime();
+		boolean done;
+		try {
+			done = task.step();
+		} catch (Exception e) {
+			e.printStackTrace();
+			done = true;
+		}
+		timing(name).record(System.nanoTime() - start);
+		return done;
+	}
+
+	private Timing timing(String name) {
+		return timings.computeIfAbsent(name, Timing::new);
+	}
+
+	/**
+	 * @return how long the steps of each name have been taking
+	 */
+	public Map<String, Timing> getTimings() {
+		return Collections.unmodifiableMap(timings);
+	}
+
+	/**
+	 * @return how many tasks are queued
+	 */
+	public synchronized int size() {
+		return queue.size();
+	}
+
+	public long getBudget(TimeUnit unit) {
+		return unit.convert(budget, TimeUnit.NANOSECONDS);
+	}
+
+	public void setBudget(long budget, TimeUnit unit) {
+		this.budget = unit.toNanos(budget);
+	}
+
+	/**
+	 * Drop everything queued and stop ticking.
+	 */
+	public synchronized void shutdown() {
+		queue.clear();
+		byKey.clear();
+		stopTicker();
+	}
+
+	private static final class Entry {
+		private final Object key;
+		private final String name;
+		private final TickTask task;
+
+		private Entry(Object key, String name, TickTask task) {
+			this.key = key;
+			this.name = name;
+			this.task = task;
+		}
+	}
+
+	/**
+	 * How long the steps of one name take
+	 *
+	 * @author Redmancometh
+	 *
+	 */
+	public static final class Timing {
+		private final String name;
+		private volatile double average;
+		private volatile long last;
+		private volatile long max;
+		private volatile long steps;
+
+		private Timing(String name) {
+			this.name = name;
+		}
+
+		private synchronized void record(long nanos) {
+			average = steps == 0 ? nanos : average + ALPHA * (nanos - average);
+			last = nanos;
+			max = Math.max(max, nanos);
+			steps++;
+		}
+
+		private long estimate() {
+			return (long) average;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the exponentially weighted average of the step times
+		 */
+		public double getAverageMillis() {
+			return average / 1e6;
+		}
+
+		public double getLastMillis() {
+			return last / 1e6;
+		}
+
+		public double getMaxMillis() {
+			return max / 1e6;
+		}
+
+		public long getSteps() {
+			return steps;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d steps, %.3f ms average, %.3f ms max", name, steps, getAverageMillis(),
+					getMaxMillis());
+		}
+	}
+}
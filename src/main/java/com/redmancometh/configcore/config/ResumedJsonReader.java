@@ -0,0 +1,179 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Hands an object whose opening brace (and possibly first name/value pair) was
+ * already consumed to an adapter that expects to read the whole object. The
+ * opening brace is replayed, followed by an optional synthetic string member,
+ * and everything after that comes straight from the underlying reader.
+ *
+ * @author Redmancometh
+ *
+ */
+final class ResumedJsonReader extends JsonReader {
+	private static final Reader UNREADABLE_READER = new Reader() {
+		@Override
+		public int read(char[] buffer, int offset, int count) throws IOException {
+			throw new AssertionError();
+		}
+
+		@Override
+		public void close() throws IOException {
+			throw new AssertionError();
+		}
+	};
+	private final JsonReader in;
+	private boolean beginPending = true;
+	private String pendingName;
+	private String pendingValue;
+
+	/**
+	 * @param in        reader positioned just after the consumed part
+	 * @param name      name of the member to replay first, or null for none
+	 * @param value     string value of that member
+	 */
+	ResumedJsonReader(JsonReader in, String name, String value) {
+		super(UNREADABLE_READER);
+		this.in = in;
+		if (name != null) {
+			this.pendingName = name;
+			this.pendingValue = value;
+		}
+	}
+
+	@Override
+	public JsonToken peek() throws IOException {
+		if (beginPending)
+			return JsonToken.BEGIN_OBJECT;
+		if (pendingName != null)
+			return JsonToken.NAME;
+		if (pendingValue != null)
+			return JsonToken.STRING;
+		return in.peek();
+	}
+
+	@Override
+	public void beginObject() throws IOException {
+		if (beginPending) {
+			beginPending = false;
+			return;
+		}
+		in.beginObject();
+	}
+
+	@Override
+	public void endObject() throws IOException {
+		in.endObject();
+	}
+
+	@Override
+	public void beginArray() throws IOException {
+		in.beginArray();
+	}
+
+	@Override
+	public void endArray() throws IOException {
+		in.endArray();
+	}
+
+	@Override
+	public boolean hasNext() throws IOException {
+		if (!beginPending && (pendingName != null || pendingValue != null))
+			return true;
+		return in.hasNext();
+	}
+
+	@Override
+	public String nextName() throws IOException {
+		if (pendingName != null && !beginPending) {
+			String name = pendingName;
+			pendingName = null;
+			return name;
+		}
+		return in.nextName();
+	}
+
+	@Override
+	public String nextString() throws IOException {
+		if (pendingValue != null && pendingName == null) {
+			String value = pendingValue;
+			pendingValue = null;
+			return value;
+		}
+		return in.nextString();
+	}
+
+	@Override
+	public boolean nextBoolean() throws IOException {
+		if (pendingValue != null && pendingName == null)
+			return Boolean.parseBoolean(nextString());
+		return in.nextBoolean();
+	}
+
+	@Override
+	public void nextNull() throws IOException {
+		in.nextNull();
+	}
+
+	@Override
+	public double nextDouble() throws IOException {
+		if (pendingValue != null && pendingName == null)
+			return Double.parseDouble(nextString());
+		return in.nextDouble();
+	}
+
+	@Override
+	public long nextLong() throws IOException {
+		if (pendingValue != null && pendingName == null)
+			return Long.parseLong(nextString());
+		return in.nextLong();
+	}
+
+	@Override
+	public int nextInt() throws IOException {
+		if (pendingValue != null && pendingName == null)
+			return Integer.parseInt(nextString());
+		return in.nextInt();
+	}
+
+	@Override
+	public void skipValue() throws IOException {
+		if (beginPending) {
+			// Skipping the whole object: drop the replayed part, skip the rest
+			beginPending = false;
+			pendingName = null;
+			pendingValue = null;
+			while (in.hasNext()) {
+				in.nextName();
+				in.skipValue();
+			}
+			in.endObject();
+		} else if (pendingName != null) {
+			pendingName = null;
+		} else if (pendingValue != null) {
+			pendingValue = null;
+		} else {
+			in.skipValue();
+		}
+	}
+
+	@Override
+	public String getPath() {
+		return in.getPath();
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " over " + in;
+	}
+}
@@ -17,14 +17,21 @@
 package com.redmancometh.configcore.config;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
 import com.google.gson.internal.Streams;
@@ -170,6 +177,15 @@ import com.google.gson.stream.JsonWriter;
  * 	Shape shape = gson.fromJson(json, Shape.class);
  * }
  * </pre>
+ *
+ * <h3>Streaming</h3> When the type field is the first member of an object (as
+ * it is in everything this factory writes), the subtype is streamed straight
+ * into its delegate adapter without building a {@code JsonElement} tree.
+ * Objects that name their type further down are buffered as before. Subtypes
+ * holding maps are only streamed when the Gson has a
+ * {@link StreamingMapTypeAdapterFactory} (every Gson out of the
+ * {@link GsonRegistry} does), since Gson's own map adapter can't read through
+ * a wrapped reader. Writes never build a tree.
  */
 public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
 	private final Class<?> baseType;
@@ -251,16 +267,58 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
 
 		final Map<String, TypeAdapter<?>> labelToDelegate = new LinkedHashMap<String, TypeAdapter<?>>();
 		final Map<Class<?>, TypeAdapter<?>> subtypeToDelegate = new LinkedHashMap<Class<?>, TypeAdapter<?>>();
+		final Set<String> streamableLabels = new HashSet<String>();
+		boolean streamingMaps = gson.getAdapter(Map.class) instanceof StreamingMapTypeAdapterFactory.Adapter;
 		for (Map.Entry<String, Class<?>> entry : labelToSubtype.entrySet()) {
 			TypeAdapter<?> delegate = gson.getDelegateAdapter(this, TypeToken.get(entry.getValue()));
 			labelToDelegate.put(entry.getKey(), delegate);
 			subtypeToDelegate.put(entry.getValue(), delegate);
+			if (streamingMaps || !holdsMap(entry.getValue(), new HashSet<Class<?>>()))
+				streamableLabels.add(entry.getKey());
 		}
 
 		return new TypeAdapter<R>() {
 			@Override
 			public R read(JsonReader in) throws IOException {
-				JsonElement jsonElement = Streams.parse(in);
+				in.beginObject();
+				if (!in.hasNext())
+					throw new JsonParseException(
+							"cannot deserialize " + baseType + " because it does not define a field named " + typeFieldName);
+				String firstName = in.nextName();
+				if (!firstName.equals(typeFieldName)) {
+					// The label comes later, so there's nothing to do but buffer
+					JsonObject jsonObject = new JsonObject();
+					jsonObject.add(firstName, Streams.parse(in));
+					return fromTree(readRemaining(in, jsonObject));
+				}
+				String label = in.nextString();
+				TypeAdapter<R> delegate = delegateFor(label);
+				if (streamableLabels.contains(label))
+					return delegate.read(new ResumedJsonReader(in, maintainType ? typeFieldName : null, label));
+				JsonObject jsonObject = new JsonObject();
+				if (maintainType)
+					jsonObject.addProperty(typeFieldName, label);
+				return delegate.fromJsonTree(readRemaining(in, jsonObject));
+			}
+
+			private JsonObject readRemaining(JsonReader in, JsonObject jsonObject) throws IOException {
+				while (in.hasNext())
+					jsonObject.add(in.nextName(), Streams.parse(in));
+				in.endObject();
+				return jsonObject;
+			}
+
+			@SuppressWarnings("unchecked") // registration requires that subtype extends T
+			private TypeAdapter<R> delegateFor(String label) {
+				TypeAdapter<R> delegate = (TypeAdapter<R>) labelToDelegate.get(label);
+				if (delegate == null) {
+					throw new JsonParseException("cannot deserialize " + baseType + " subtype named " + label
+							+ "; did you forget to register a subtype?");
+				}
+				return delegate;
+			}
+
+			private R fromTree(JsonElement jsonElement) {
 				JsonElement labelJsonElement;
 				if (maintainType) {
 					labelJsonElement = jsonElement.getAsJsonObject().get(typeFieldName);
@@ -272,14 +330,7 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
 					throw new JsonParseException("cannot deserialize " + baseType
 							+ " because it does not define a field named " + typeFieldName);
 				}
-				String label = labelJsonElement.getAsString();
-				@SuppressWarnings("unchecked") // registration requires that subtype extends T
-				TypeAdapter<R> delegate = (TypeAdapter<R>) labelToDelegate.get(label);
-				if (delegate == null) {
-					throw new JsonParseException("cannot deserialize " + baseType + " subtype named " + label
-							+ "; did you forget to register a subtype?");
-				}
-				return delegate.fromJsonTree(jsonElement);
+				return delegateFor(labelJsonElement.getAsString()).fromJsonTree(jsonElement);
 			}
 
 			@Override
@@ -292,26 +343,50 @@ public final class RuntimeTypeAdapterFactory<T> implements TypeAdapterFactory {
 					throw new JsonParseException(
 							"cannot serialize " + srcType.getName() + "; did you forget to register a subtype?");
 				}
-				JsonObject jsonObject = delegate.toJsonTree(value).getAsJsonObject();
-
 				if (maintainType) {
-					Streams.write(jsonObject, out);
+					delegate.write(out, value);
 					return;
 				}
-
-				JsonObject clone = new JsonObject();
-
-				if (jsonObject.has(typeFieldName)) {
-					throw new JsonParseException("cannot serialize " + srcType.getName()
-							+ " because it already defines a field named " + typeFieldName);
-				}
-				clone.add(typeFieldName, new JsonPrimitive(label));
-
-				for (Map.Entry<String, JsonElement> e : jsonObject.entrySet()) {
-					clone.add(e.getKey(), e.getValue());
-				}
-				Streams.write(clone, out);
+				delegate.write(new LabelingJsonWriter(out, typeFieldName, label, srcType), value);
 			}
 		}.nullSafe();
 	}
+
+	/**
+	 * Whether anything reachable from the type's fields may be a map. Field types
+	 * that can't be resolved here count as maps.
+	 */
+	private static boolean holdsMap(Type type, Set<Class<?>> seen) {
+		if (type instanceof ParameterizedType) {
+			ParameterizedType parameterized = (ParameterizedType) type;
+			if (holdsMap(parameterized.getRawType(), seen))
+				return true;
+			if (Collection.class.isAssignableFrom((Class<?>) parameterized.getRawType())) {
+				for (Type argument : parameterized.getActualTypeArguments())
+					if (holdsMap(argument, seen))
+						return true;
+			}
+			return false;
+		}
+		if (type instanceof GenericArrayType)
+			return holdsMap(((GenericArrayType) type).getGenericComponentType(), seen);
+		if (!(type instanceof Class))
+			return true;
+		Class<?> clazz = (Class<?>) type;
+		if (Map.class.isAssignableFrom(clazz))
+			return true;
+		if (clazz.isArray())
+			return holdsMap(clazz.getComponentType(), seen);
+		if (clazz.isPrimitive() || clazz.isEnum() || clazz.getName().startsWith("java.") || !seen.add(clazz))
+			return false;
+		for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()))
+					continue;
+				if (holdsMap(field.getGenericType(), seen))
+					return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,105 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.ConstructorConstructor;
+import com.google.gson.internal.ObjectConstructor;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads maps the way Gson's own map adapter does, but only through the public
+ * {@link JsonReader} API. Gson's adapter turns object keys into values through
+ * an internal hook that only works on its own reader classes, which breaks any
+ * reader that wraps another one (like the streaming path of
+ * {@link RuntimeTypeAdapterFactory}). Writing is left to Gson.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class StreamingMapTypeAdapterFactory implements TypeAdapterFactory {
+	private final ConstructorConstructor constructors = new ConstructorConstructor(Collections.emptyMap());
+
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		Class<? super T> rawType = type.getRawType();
+		if (!Map.class.isAssignableFrom(rawType))
+			return null;
+		Type[] keyAndValueTypes = $Gson$Types.getMapKeyAndValueTypes(type.getType(), rawType);
+		TypeAdapter<?> keyAdapter = gson.getAdapter(TypeToken.get(keyAndValueTypes[0]));
+		TypeAdapter<?> valueAdapter = gson.getAdapter(TypeToken.get(keyAndValueTypes[1]));
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		TypeAdapter<T> adapter = new Adapter(keyAdapter, valueAdapter, gson.getDelegateAdapter(this, type),
+				constructors.get(type));
+		return adapter;
+	}
+
+	static final class Adapter<K, V> extends TypeAdapter<Map<K, V>> {
+		private final TypeAdapter<K> keyAdapter;
+		private final TypeAdapter<V> valueAdapter;
+		private final TypeAdapter<Map<K, V>> writer;
+		private final ObjectConstructor<? extends Map<K, V>> constructor;
+
+		Adapter(TypeAdapter<K> keyAdapter, TypeAdapter<V> valueAdapter, TypeAdapter<Map<K, V>> writer,
+				ObjectConstructor<? extends Map<K, V>> constructor) {
+			this.keyAdapter = keyAdapter;
+			this.valueAdapter = valueAdapter;
+			this.writer = writer;
+			this.constructor = constructor;
+		}
+
+		@Override
+		public Map<K, V> read(JsonReader in) throws IOException {
+			JsonToken peek = in.peek();
+			if (peek == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			Map<K, V> map = constructor.construct();
+			if (peek == JsonToken.BEGIN_ARRAY) {
+				in.beginArray();
+				while (in.hasNext()) {
+					in.beginArray();
+					put(map, keyAdapter.read(in), valueAdapter.read(in));
+					in.endArray();
+				}
+				in.endArray();
+				return map;
+			}
+			in.beginObject();
+			while (in.hasNext())
+				put(map, key(in.nextName()), valueAdapter.read(in));
+			in.endObject();
+			return map;
+		}
+
+		@SuppressWarnings("unchecked")
+		private K key(String name) throws IOException {
+			if (keyAdapter == TypeAdapters.STRING)
+				return (K) name;
+			return keyAdapter.fromJsonTree(new JsonPrimitive(name));
+		}
+
+		private void put(Map<K, V> map, K key, V value) {
+			if (map.put(key, value) != null)
+				throw new JsonSyntaxException("duplicate key: " + key);
+		}
+
+		@Override
+		public void write(JsonWriter out, Map<K, V> value) throws IOException {
+			writer.write(out, value);
+		}
+	}
+}
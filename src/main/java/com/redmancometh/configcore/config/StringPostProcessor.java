@@ -0,0 +1,188 @@
+package com.redmancometh.configcore.config;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.bukkit.ChatColor;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Single pass rewrite of config strings: {@code &} color codes become real
+ * ones, {@code //} and {@code \} become the platform's file separator. A
+ * string with nothing to rewrite is returned as is after one scan, and results
+ * are kept in a small direct-mapped cache so a string repeated all over a
+ * config is only rewritten (and kept in memory) once.
+ *
+ * Which rewrites run is up to the processor: {@link #STANDARD} does what
+ * {@link ConfigManager.PathAdapter} has always done to every string, the
+ * others are meant for single fields:
+ *
+ * <pre>
+ * &#64;JsonAdapter(StringPostProcessor.Colors.class)
+ * private String joinMessage;
+ * </pre>
+ *
+ * Pair those with {@link AdapterSet#ANNOTATED_STRINGS} to leave every other
+ * string alone.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class StringPostProcessor {
+	private static final int CACHE_SIZE = Integer.highestOneBit(
+			Math.max(16, Integer.getInteger("configcore.strings.cacheSize", 4096)));
+	/**
+	 * Longer strings are rarely repeated and not worth holding on to.
+	 */
+	private static final int MAX_CACHED_LENGTH = 256;
+	private static final char SEPARATOR = File.separatorChar;
+	private static final boolean[] COLOR_CODES = new boolean[128];
+	static {
+		for (char code : "0123456789AaBbCcDdEeFfKkLlMmNnOoRr".toCharArray())
+			COLOR_CODES[code] = true;
+	}
+	/**
+	 * Colors and separators, leaving anything that looks like a URL or JDBC
+	 * string untouched.
+	 */
+	public static final StringPostProcessor STANDARD = new StringPostProcessor(true, true, true);
+	public static final StringPostProcessor COLORS = new StringPostProcessor(true, false, false);
+	public static final StringPostProcessor PATHS = new StringPostProcessor(false, true, false);
+	private final boolean colors;
+	private final boolean paths;
+	private final boolean skipUrls;
+	private final Entry[] cache = new Entry[CACHE_SIZE];
+
+	private StringPostProcessor(boolean colors, boolean paths, boolean skipUrls) {
+		this.colors = colors;
+		this.paths = paths;
+		this.skipUrls = skipUrls;
+	}
+
+	public String process(String value) {
+		if (value == null)
+			return null;
+		if (value.length() > MAX_CACHED_LENGTH)
+			return rewrite(value);
+		int slot = value.hashCode() & (CACHE_SIZE - 1);
+		Entry entry = cache[slot];
+		if (entry != null && entry.key.equals(value))
+			return entry.value;
+		String result = rewrite(value);
+		// Entries are immutable, so a racing reader sees either one whole or the other
+		cache[slot] = new Entry(value, result);
+		return result;
+	}
+
+	private String rewrite(String value) {
+		int length = value.length();
+		int first = 0;
+		while (first < length && !rewritesAt(value, first))
+			first++;
+		if (first == length)
+			return value;
+		if (skipUrls && (value.contains("http") || value.contains("jdbc")))
+			return value;
+		char[] out = new char[length];
+		value.getChars(0, first, out, 0);
+		int written = first;
+		for (int i = first; i < length; i++) {
+			char c = value.charAt(i);
+			if (paths && c == '/' && i + 1 < length && value.charAt(i + 1) == '/') {
+				out[written++] = SEPARATOR;
+				i++;
+			} else if (paths && c == '\\') {
+				out[written++] = SEPARATOR;
+			} else if (colors && c == '&' && i + 1 < length && isColorCode(value.charAt(i + 1))) {
+				out[written++] = ChatColor.COLOR_CHAR;
+				out[written++] = Character.toLowerCase(value.charAt(++i));
+			} else {
+				out[written++] = c;
+			}
+		}
+		return new String(out, 0, written);
+	}
+
+	private boolean rewritesAt(String value, int i) {
+		char c = value.charAt(i);
+		if (colors && c == '&')
+			return i + 1 < value.length() && isColorCode(value.charAt(i + 1));
+		if (paths && c == '\\')
+			return true;
+		return paths && c == '/' && i + 1 < value.length() && value.charAt(i + 1) == '/';
+	}
+
+	private static boolean isColorCode(char c) {
+		return c < 128 && COLOR_CODES[c];
+	}
+
+	private static final class Entry {
+		private final String key;
+		private final String value;
+
+		private Entry(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Runs strings through a processor on the way in, writes them back as they
+	 * are.
+	 */
+	public static class Adapter extends TypeAdapter<String> {
+		private final StringPostProcessor processor;
+
+		public Adapter(StringPostProcessor processor) {
+			this.processor = processor;
+		}
+
+		@Override
+		public String read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			return processor.process(in.nextString());
+		}
+
+		@Override
+		public void write(JsonWriter out, String value) throws IOException {
+			out.value(value);
+		}
+	}
+
+	/**
+	 * For {@link JsonAdapter}: translate color codes only.
+	 */
+	public static class Colors extends Adapter {
+		public Colors() {
+			super(COLORS);
+		}
+	}
+
+	/**
+	 * For {@link JsonAdapter}: turn {@code //} and {@code \} into the file
+	 * separator only.
+	 */
+	public static class Paths extends Adapter {
+		public Paths() {
+			super(PATHS);
+		}
+	}
+
+	/**
+	 * For {@link JsonAdapter}: both, like every string gets under
+	 * {@link AdapterSet#STANDARD}.
+	 */
+	public static class ColorsAndPaths extends Adapter {
+		public ColorsAndPaths() {
+			super(STANDARD);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package com.redmancometh.configcore.config;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.ConstructorConstructor;
+import com.google.gson.internal.bind.CollectionTypeAdapterFactory;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.redmancometh.configcore.config.validation.ClassValidator;
+import com.redmancometh.configcore.config.validation.ValidatingTypeAdapterFactory;
+import com.redmancometh.configcore.config.validation.ValidationScope;
+
+/**
+ * Builds the object for a new JSON tree out of the object built for the
+ * previous one. Every subtree whose JSON didn't change is taken over from the
+ * previous object as is, so only what changed is deserialized and whoever
+ * holds on to the unchanged parts keeps valid references.
+ *
+ * Plain classes are rebuilt field by field, the way Gson's reflective adapter
+ * (or a compiled one) binds them, and lists and maps element by element.
+ * Anything read by another adapter is deserialized whole when its JSON
+ * changed.
+ *
+ * @author Redmancometh
+ *
+ */
+final class SubtreeMerger {
+	private final Gson gson;
+	private final ConstructorConstructor constructors = new ConstructorConstructor(Collections.emptyMap());
+	private final Map<Type, List<Binding>> bindings = new ConcurrentHashMap<>();
+
+	SubtreeMerger(Gson gson) {
+		this.gson = gson;
+	}
+
+	Gson getGson() {
+		return gson;
+	}
+
+	/**
+	 * @param path where the value is in the file, like {@code $.shops.weapons[2]}
+	 */
+	Object merge(Type type, Object previous, JsonElement before, JsonElement after, String path) {
+		if (previous != null && before != null && before.equals(after))
+			return previous;
+		if (previous == null || before == null)
+			return read(type, after, path);
+		// Constraints are checked on the merged objects themselves
+		TypeAdapter<?> adapter = ValidatingTypeAdapterFactory.unwrap(gson.getAdapter(TypeToken.get(type)));
+		Class<?> raw = $Gson$Types.getRawType(type);
+		if ((adapter instanceof ReflectiveTypeAdapterFactory.Adapter
+				|| adapter instanceof CompiledTypeAdapterFactory.Adapter) && previous.getClass() == raw
+				&& before.isJsonObject() && after.isJsonObject())
+			return mergeFields(type, previous, before.getAsJsonObject(), after.getAsJsonObject(), path);
+		if (adapter.getClass().getEnclosingClass() == CollectionTypeAdapterFactory.class
+				&& previous instanceof List && before.isJsonArray() && after.isJsonArray())
+			return mergeList(type, raw, (List<?>) previous, before.getAsJsonArray(), after.getAsJsonArray(), path);
+		if (adapter instanceof StreamingMapTypeAdapterFactory.Adapter && previous instanceof Map
+				&& before.isJsonObject() && after.isJsonObject())
+			return mergeMap(type, raw, (Map<?, ?>) previous, before.getAsJsonObject(), after.getAsJsonObject(),
+					path);
+		return read(type, after, path);
+	}
+
+	/**
+	 * Deserialize a part of the file the usual way, with constraint violations
+	 * reported at their path in the whole file.
+	 */
+	private Object read(Type type, JsonElement after, String path) {
+		return read(() -> gson.fromJson(after, type), path);
+	}
+
+	private Object read(TypeAdapter<?> adapter, JsonElement after, String path) {
+		return read(() -> adapter.fromJsonTree(after), path);
+	}
+
+	private Object read(Supplier<Object> reader, String path) {
+		ValidationScope scope = ValidationScope.current();
+		String base = scope == null ? null : scope.rebase(path);
+		try {
+			return reader.get();
+		} finally {
+			if (scope != null)
+				scope.rebase(base);
+		}
+	}
+
+	private Object mergeFields(Type type, Object previous, JsonObject before, JsonObject after, String path) {
+		Object merged = constructors.get(TypeToken.get(type)).construct();
+		try {
+			for (Binding binding : bindings.computeIfAbsent(type, this::bind)) {
+				JsonElement newValue = binding.find(after);
+				// Like Gson, a member missing from the file leaves the field as constructed
+				if (newValue == null)
+					continue;
+				JsonElement oldValue = binding.find(before);
+				String fieldPath = path + "." + binding.names[0];
+				Object value;
+				if (binding.adapter != null)
+					value = oldValue != null && oldValue.equals(newValue) ? binding.field.get(previous)
+							: read(binding.adapter, newValue, fieldPath);
+				else
+					value = merge(binding.type, binding.field.get(previous), oldValue, newValue, fieldPath);
+				if (value != null || !binding.field.getType().isPrimitive())
+					binding.field.set(merged, value);
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		// Built without its adapter, so its own constraints are checked here
+		ClassValidator validator = ClassValidator.of(merged.getClass());
+		if (!validator.isEmpty())
+			validator.validate(merged, path, gson.fieldNamingStrategy());
+		return merged;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object mergeList(Type type, Class<?> raw, List<?> previous, JsonArray before, JsonArray after,
+			String path) {
+		Type elementType = $Gson$Types.getCollectionElementType(type, raw);
+		Collection<Object> merged = (Collection<Object>) constructors.get(TypeToken.get(type)).construct();
+		for (int i = 0; i < after.size(); i++) {
+			boolean existed = i < before.size() && i < previous.size();
+			merged.add(merge(elementType, existed ? previous.get(i) : null, existed ? before.get(i) : null,
+					after.get(i), path + "[" + i + "]"));
+		}
+		return merged;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object mergeMap(Type type, Class<?> raw, Map<?, ?> previous, JsonObject before, JsonObject after,
+			String path) {
+		Type[] keyAndValue = $Gson$Types.getMapKeyAndValueTypes(type, raw);
+		TypeAdapter<?> keyAdapter = gson.getAdapter(TypeToken.get(keyAndValue[0]));
+		Map<Object, Object> merged = (Map<Object, Object>) constructors.get(TypeToken.get(type)).construct();
+		for (Map.Entry<String, JsonElement> entry : after.entrySet()) {
+			// Keys are converted like StreamingMapTypeAdapterFactory does
+			Object key = keyAndValue[0] == String.class ? entry.getKey()
+					: keyAdapter.fromJsonTree(new JsonPrimitive(entry.getKey()));
+			JsonElement oldValue = before.get(entry.getKey());
+			merged.put(key, merge(keyAndValue[1], oldValue == null ? null : previous.get(key), oldValue,
+					entry.getValue(), path + "." + entry.getKey()));
+		}
+		return merged;
+	}
+
+	/**
+	 * The fields Gson's reflective adapter would bind for deserialization, with
+	 * their names in the file and resolved types.
+	 */
+	private List<Binding> bind(Type type) {
+		List<Binding> bound = new ArrayList<>();
+		Class<?> raw = $Gson$Types.getRawType(type);
+		while (raw != Object.class && raw != null) {
+			for (Field field : raw.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || gson.excluder().excludeField(field, false))
+					continue;
+				field.setAccessible(true);
+				Type fieldType = $Gson$Types.resolve(type, raw, field.getGenericType());
+				bound.add(new Binding(field, CompiledTypeAdapterFactory.names(gson, field), fieldType,
+						CompiledTypeAdapterFactory.annotatedAdapter(gson, constructors, field, fieldType)));
+			}
+			type = $Gson$Types.resolve(type, raw, raw.getGenericSuperclass());
+			raw = $Gson$Types.getRawType(type);
+		}
+		return bound;
+	}
+
+	private static final class Binding {
+		private final Field field;
+		private final String[] names;
+		private final Type type;
+		private final TypeAdapter<?> adapter;
+
+		private Binding(Field field, String[] names, Type type, TypeAdapter<?> adapter) {
+			this.field = field;
+			this.names = names;
+			this.type = type;
+			this.adapter = adapter;
+		}
+
+		private JsonElement find(JsonObject object) {
+			for (String name : names) {
+				JsonElement value = object.get(name);
+				if (value != null)
+					return value;
+			}
+			return null;
+		}
+	}
+}
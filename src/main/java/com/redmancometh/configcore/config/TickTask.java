@@ -0,0 +1,22 @@
+package com.redmancometh.configcore.config;
+
+/**
+ * Work on the server main thread that can be split over several ticks, like
+ * rebuilding every shop sign after a reload. See
+ * {@link ConfigManager#addChunkedReloadListener(String, java.util.function.Function)}.
+ *
+ * @author Redmancometh
+ *
+ */
+@FunctionalInterface
+public interface TickTask {
+	/**
+	 * Do the next chunk of the work. Keep each chunk short (well under a
+	 * millisecond is a good target): the queue decides how many chunks fit in a
+	 * tick from how long they took so far.
+	 *
+	 * @return true once all of the work is done, false to be called again, on
+	 *         this tick if there's budget left or a later one otherwise
+	 */
+	boolean step();
+}
@@ -0,0 +1,91 @@
+package com.redmancometh.configcore.config;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes UTF-8 from a byte buffer straight into the char buffer of whoever
+ * reads it, usually a JsonReader, so there's no stream or intermediate buffer
+ * in between. Runs of ASCII, which is nearly all of a config, are copied
+ * directly; anything else goes through a UTF-8 decoder. Malformed input is
+ * replaced, like InputStreamReader does.
+ *
+ * @author Redmancometh
+ *
+ */
+final class Utf8BufferReader extends Reader {
+	private final ByteBuffer in;
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private CharBuffer scratch;
+	// Second half of a surrogate pair that didn't fit the last read
+	private int pending = -1;
+
+	Utf8BufferReader(ByteBuffer in) {
+		this.in = in;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int count) {
+		if (count == 0)
+			return 0;
+		int read = 0;
+		if (pending >= 0) {
+			buffer[offset] = (char) pending;
+			pending = -1;
+			read = 1;
+		}
+		read += copyAscii(buffer, offset + read, count - read);
+		if (read < count && in.hasRemaining()) {
+			CharBuffer out = CharBuffer.wrap(buffer, offset + read, count - read);
+			decoder.decode(in, out, true);
+			read = out.position() - offset;
+			if (read == 0)
+				read = decodeSplit(buffer, offset);
+		}
+		return read == 0 && !in.hasRemaining() ? -1 : read;
+	}
+
+	private int copyAscii(char[] buffer, int offset, int count) {
+		int pos = in.position();
+		int end = pos + Math.min(count, in.remaining());
+		int start = pos;
+		if (in.hasArray()) {
+			byte[] bytes = in.array();
+			int base = in.arrayOffset();
+			for (byte b; pos < end && (b = bytes[base + pos]) >= 0; pos++)
+				buffer[offset++] = (char) b;
+		} else {
+			for (byte b; pos < end && (b = in.get(pos)) >= 0; pos++)
+				buffer[offset++] = (char) b;
+		}
+		in.position(pos);
+		return pos - start;
+	}
+
+	/**
+	 * Decode a character that takes two chars into a single char of room, keeping
+	 * the second one for the next read.
+	 */
+	private int decodeSplit(char[] buffer, int offset) {
+		if (scratch == null)
+			scratch = CharBuffer.allocate(2);
+		scratch.clear();
+		decoder.decode(in, scratch, true);
+		scratch.flip();
+		if (!scratch.hasRemaining())
+			return 0;
+		buffer[offset] = scratch.get();
+		if (scratch.hasRemaining())
+			pending = scratch.get();
+		return 1;
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,234 @@
+package com.redmancometh.configcore.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Process-wide file watch engine. Every directory holding a watched file is
+ * registered with one shared {@link WatchService} exactly once, and the events
+ * it reports are routed to the listeners of the file they concern.
+ *
+ * Directories the filesystem refuses to watch (or all of them, when
+ * {@code -Dconfigcore.watch.forcePolling=true} is set for mounts that accept a
+ * registration but never report anything) fall back to a cheap size/mtime
+ * poll on the same thread.
+ *
+ * @author Redmancometh
+ *
+ */
+public class WatchEngine {
+	private static final WatchEngine INSTANCE = new WatchEngine();
+	private final Map<Path, Set<Consumer<Path>>> listeners = new ConcurrentHashMap<>();
+	private final Map<Path, WatchKey> keys = new ConcurrentHashMap<>();
+	private final Set<Path> polledDirectories = ConcurrentHashMap.newKeySet();
+	private final Map<Path, long[]> pollStamps = new ConcurrentHashMap<>();
+	private final boolean forcePolling = Boolean.getBoolean("configcore.watch.forcePolling");
+	private final long pollInterval = Long.getLong("configcore.watch.pollInterval", 1000);
+	private WatchService watchService;
+	private Thread thread;
+	private volatile boolean running;
+
+	public static WatchEngine getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Start routing change events for the given file to the listener. The
+	 * listener is called on the engine thread, so keep it short.
+	 *
+	 * @param file
+	 * @param listener
+	 */
+	public synchronized void watch(Path file, Consumer<Path> listener) {
+		Path absolute = file.toAbsolutePath().normalize();
+		Path dir = absolute.getParent();
+		listeners.computeIfAbsent(absolute, (key) -> new CopyOnWriteArraySet<>()).add(listener);
+		ensureRunning();
+		if (!keys.containsKey(dir) && !polledDirectories.contains(dir))
+			registerDirectory(dir);
+		if (polledDirectories.contains(dir))
+			pollStamps.put(absolute, stamp(absolute));
+	}
+
+	/**
+	 * Stop routing events for the given file to the listener. Once nothing in a
+	 * directory is watched anymore the directory is unregistered, and once
+	 * nothing is watched at all the engine thread exits.
+	 *
+	 * @param file
+	 * @param listener
+	 */
+	public synchronized void unwatch(Path file, Consumer<Path> listener) {
+		Path absolute = file.toAbsolutePath().normalize();
+		Set<Consumer<Path>> fileListeners = listeners.get(absolute);
+		if (fileListeners == null)
+			return;
+		fileListeners.remove(listener);
+		if (!fileListeners.isEmpty())
+			return;
+		listeners.remove(absolute);
+		pollStamps.remove(absolute);
+		Path dir = absolute.getParent();
+		if (listeners.keySet().stream().noneMatch((watched) -> dir.equals(watched.getParent()))) {
+			WatchKey key = keys.remove(dir);
+			if (key != null)
+				key.cancel();
+			polledDirectories.remove(dir);
+		}
+		if (listeners.isEmpty())
+			shutdown();
+	}
+
+	/**
+	 * Close the watch service and stop the engine thread. Watching anything again
+	 * afterwards starts a fresh one.
+	 */
+	public synchronized void shutdown() {
+		running = false;
+		keys.clear();
+		polledDirectories.clear();
+		pollStamps.clear();
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			watchService = null;
+		}
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	private void ensureRunning() {
+		if (running)
+			return;
+		if (!forcePolling) {
+			try {
+				watchService = FileSystems.getDefault().newWatchService();
+			} catch (IOException | UnsupportedOperationException e) {
+				e.printStackTrace();
+				watchService = null;
+			}
+		}
+		running = true;
+		thread = new Thread(this::run, "ConfigCore-WatchEngine");
+		thread.setDaemon(true);
+		thread.start();
+		// Directories left over from a previous shutdown are registered again
+		listeners.keySet().stream().map(Path::getParent).distinct().forEach(this::registerDirectory);
+	}
+
+	private void registerDirectory(Path dir) {
+		if (watchService != null && Files.isDirectory(dir)) {
+			try {
+				keys.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+				return;
+			} catch (IOException | UnsupportedOperationException e) {
+				e.printStackTrace();
+			}
+		}
+		polledDirectories.add(dir);
+		listeners.keySet().stream().filter((file) -> dir.equals(file.getParent()))
+				.forEach((file) -> pollStamps.put(file, stamp(file)));
+	}
+
+	private void run() {
+		long nextPoll = System.currentTimeMillis() + pollInterval;
+		while (running) {
+			try {
+				WatchService service = watchService;
+				if (service != null) {
+					WatchKey key = service.poll(pollInterval, TimeUnit.MILLISECONDS);
+					if (key != null)
+						handle(key);
+				} else {
+					Thread.sleep(pollInterval);
+				}
+				long now = System.currentTimeMillis();
+				if (now >= nextPoll) {
+					pollFallback();
+					nextPoll = now + pollInterval;
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void handle(WatchKey key) {
+		Path dir = (Path) key.watchable();
+		Set<Path> changed = new LinkedHashSet<>();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// Events were dropped, so anything in the directory may have changed
+				changed.addAll(listeners.keySet().stream().filter((file) -> dir.equals(file.getParent()))
+						.collect(Collectors.toList()));
+				continue;
+			}
+			changed.add(dir.resolve((Path) event.context()));
+		}
+		changed.forEach(this::dispatch);
+		if (!key.reset()) {
+			// The directory itself went away, poll it until it comes back
+			synchronized (this) {
+				keys.remove(dir);
+				polledDirectories.add(dir);
+				listeners.keySet().stream().filter((file) -> dir.equals(file.getParent()))
+						.forEach((file) -> pollStamps.put(file, stamp(file)));
+			}
+		}
+	}
+
+	private void pollFallback() {
+		for (Map.Entry<Path, long[]> entry : pollStamps.entrySet()) {
+			long[] current = stamp(entry.getKey());
+			long[] last = entry.getValue();
+			if (current[0] != last[0] || current[1] != last[1]) {
+				entry.setValue(current);
+				dispatch(entry.getKey());
+			}
+		}
+	}
+
+	private void dispatch(Path file) {
+		Set<Consumer<Path>> fileListeners = listeners.get(file);
+		if (fileListeners == null)
+			return;
+		for (Consumer<Path> listener : fileListeners) {
+			try {
+				listener.accept(file);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private static long[] stamp(Path file) {
+		try {
+			return new long[] { Files.getLastModifiedTime(file).toMillis(), Files.size(file) };
+		} catch (IOException e) {
+			return new long[] { -1, -1 };
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.redmancometh.configcore.config;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Plain Java xxHash64. Used to fingerprint config file contents; it is not a
+ * cryptographic hash and shouldn't be used as one.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class XXHash64 {
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+	private XXHash64() {
+	}
+
+	public static long hash(byte[] data) {
+		return hash(ByteBuffer.wrap(data), 0);
+	}
+
+	/**
+	 * Hash the remaining bytes of the buffer. The buffer's position and byte order
+	 * are left untouched.
+	 *
+	 * @param buffer
+	 * @param seed
+	 * @return
+	 */
+	public static long hash(ByteBuffer buffer, long seed) {
+		ByteBuffer buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int pos = buf.position();
+		int end = buf.limit();
+		long hash;
+		if (end - pos >= 32) {
+			long v1 = seed + PRIME1 + PRIME2;
+			long v2 = seed + PRIME2;
+			long v3 = seed;
+			long v4 = seed - PRIME1;
+			int limit = end - 32;
+			do {
+				v1 = round(v1, buf.getLong(pos));
+				v2 = round(v2, buf.getLong(pos + 8));
+				v3 = round(v3, buf.getLong(pos + 16));
+				v4 = round(v4, buf.getLong(pos + 24));
+				pos += 32;
+			} while (pos <= limit);
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+					+ Long.rotateLeft(v4, 18);
+			hash = merge(hash, v1);
+			hash = merge(hash, v2);
+			hash = merge(hash, v3);
+			hash = merge(hash, v4);
+		} else {
+			hash = seed + PRIME5;
+		}
+		hash += end - buf.position();
+		while (pos + 8 <= end) {
+			hash ^= round(0, buf.getLong(pos));
+			hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+			pos += 8;
+		}
+		if (pos + 4 <= end) {
+			hash ^= (buf.getInt(pos) & 0xFFFFFFFFL) * PRIME1;
+			hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+			pos += 4;
+		}
+		while (pos < end) {
+			hash ^= (buf.get(pos) & 0xFF) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+			pos++;
+		}
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+		return hash;
+	}
+
+	private static long round(long acc, long input) {
+		acc += input * PRIME2;
+		acc = Long.rotateLeft(acc, 31);
+		return acc * PRIME1;
+	}
+
+	private static long merge(long acc, long value) {
+		acc ^= round(0, value);
+		return acc * PRIME1 + PRIME4;
+	}
+}
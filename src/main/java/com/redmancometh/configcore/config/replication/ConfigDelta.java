@@ -0,0 +1,113 @@
+package com.redmancometh.configcore.config.replication;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import lombok.Getter;
+
+/**
+ * One message between a {@link ConfigPublisher} and its subscribers: the whole
+ * of a config, the changes from one version of it to the next, or a
+ * subscriber asking for the whole of it again. On the wire it's compact JSON.
+ *
+ * Versions are numbered per config by the publisher, starting over from 1 in
+ * every epoch, which is picked at random each time a publisher starts.
+ *
+ * @author Redmancometh
+ *
+ */
+@Getter
+public final class ConfigDelta {
+	public enum Kind {
+		FULL, DELTA, RESYNC
+	}
+
+	private final Kind kind;
+	/**
+	 * The config's file name, like {@code shop.json}
+	 */
+	private final String config;
+	private final long epoch;
+	private final long sequence;
+	/**
+	 * The version a delta applies to
+	 */
+	private final long base;
+	/**
+	 * Content hash of the publisher's file
+	 */
+	private final long fingerprint;
+	/**
+	 * The whole config for {@link Kind#FULL}, the operations for
+	 * {@link Kind#DELTA}, otherwise null
+	 */
+	private final JsonElement body;
+
+	private ConfigDelta(Kind kind, String config, long epoch, long sequence, long base, long fingerprint,
+			JsonElement body) {
+		this.kind = kind;
+		this.config = config;
+		this.epoch = epoch;
+		this.sequence = sequence;
+		this.base = base;
+		this.fingerprint = fingerprint;
+		this.body = body;
+	}
+
+	public static ConfigDelta full(String config, long epoch, long sequence, long fingerprint, JsonElement tree) {
+		return new ConfigDelta(Kind.FULL, config, epoch, sequence, 0, fingerprint, tree);
+	}
+
+	public static ConfigDelta delta(String config, long epoch, long sequence, long base, long fingerprint,
+			JsonArray operations) {
+		return new ConfigDelta(Kind.DELTA, config, epoch, sequence, base, fingerprint, operations);
+	}
+
+	public static ConfigDelta resync(String config) {
+		return new ConfigDelta(Kind.RESYNC, config, 0, 0, 0, 0, null);
+	}
+
+	public byte[] encode() {
+		JsonObject json = new JsonObject();
+		json.addProperty("kind", kind.name());
+		json.addProperty("config", config);
+		if (kind != Kind.RESYNC) {
+			json.addProperty("epoch", epoch);
+			json.addProperty("sequence", sequence);
+			json.addProperty("base", base);
+			json.addProperty("fingerprint", fingerprint);
+			json.add("body", body);
+		}
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param data
+	 * @return
+	 * @throws JsonParseException if it's not a message
+	 */
+	public static ConfigDelta decode(byte[] data) {
+		try {
+			JsonObject json = JsonParser.parseString(new String(data, StandardCharsets.UTF_8)).getAsJsonObject();
+			Kind kind = Kind.valueOf(json.get("kind").getAsString());
+			String config = json.get("config").getAsString();
+			if (kind == Kind.RESYNC)
+				return resync(config);
+			return new ConfigDelta(kind, config, json.get("epoch").getAsLong(), json.get("sequence").getAsLong(),
+					json.get("base").getAsLong(), json.get("fingerprint").getAsLong(), json.get("body"));
+		} catch (RuntimeException e) {
+			throw new JsonParseException("Not a replication message", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return kind.name().toLowerCase() + " " + config + " v" + sequence
+				+ (kind == Kind.DELTA ? " (on v" + base + ")" : "");
+	}
+}
@@ -0,0 +1,109 @@
+package com.redmancometh.configcore.config.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.redmancometh.configcore.config.ConfigManager;
+import com.redmancometh.configcore.config.ConfigTreeListener;
+
+/**
+ * Sends configs to other nodes as they're loaded, reloaded and saved, so
+ * they're parsed and checked once, here, instead of on every node. The first
+ * message of a config is the whole of it, every one after that only what
+ * changed since the one before.
+ *
+ * <pre>
+ * ConfigPublisher publisher = new ConfigPublisher(SocketTransport.tcp("0.0.0.0", 25580));
+ * publisher.publish(shopManager).publish(ranksManager);
+ * </pre>
+ *
+ * The publishing node runs its managers as usual, file watcher included; a
+ * standalone publisher is just a JVM that does only that.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class ConfigPublisher implements Closeable {
+	private final ReplicationTransport transport;
+	/**
+	 * Tells the messages of this publisher apart from those of one that ran
+	 * before it, whose versions started from 1 as well
+	 */
+	private final long epoch = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+	private final Map<ConfigManager<?>, Source> sources = new ConcurrentHashMap<>();
+
+	public ConfigPublisher(ReplicationTransport transport) throws IOException {
+		this.transport = transport;
+		transport.openPublisher();
+	}
+
+	/**
+	 * Publish a manager's config under its file name.
+	 *
+	 * @param manager
+	 * @return this
+	 */
+	public ConfigPublisher publish(ConfigManager<?> manager) {
+		return publish(manager.getFileName(), manager);
+	}
+
+	/**
+	 * @param name    what subscribers know the config as
+	 * @param manager
+	 * @return this
+	 */
+	public ConfigPublisher publish(String name, ConfigManager<?> manager) {
+		Source source = new Source(name);
+		if (sources.putIfAbsent(manager, source) == null)
+			manager.addTreeListener(source);
+		return this;
+	}
+
+	public void unpublish(ConfigManager<?> manager) {
+		Source source = sources.remove(manager);
+		if (source != null)
+			manager.removeTreeListener(source);
+	}
+
+	@Override
+	public void close() throws IOException {
+		sources.keySet().forEach(this::unpublish);
+		transport.close();
+	}
+
+	private final class Source implements ConfigTreeListener {
+		private final String name;
+		private JsonElement tree;
+		private long sequence;
+
+		private Source(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public synchronized void onTree(JsonElement next, long fingerprint) {
+			ConfigDelta full = ConfigDelta.full(name, epoch, sequence + 1, fingerprint, next);
+			ConfigDelta message = full;
+			if (tree != null) {
+				JsonArray operations = TreeDelta.diff(tree, next);
+				if (operations.size() == 0)
+					return;
+				message = ConfigDelta.delta(name, epoch, sequence + 1, sequence, fingerprint, operations);
+			}
+			try {
+				transport.send(message, full);
+			} catch (IOException e) {
+				// The next message goes out as what changed since the last one sent
+				e.printStackTrace();
+				return;
+			}
+			tree = next;
+			sequence++;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.redmancometh.configcore.config.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.JsonElement;
+import com.redmancometh.configcore.config.ConfigManager;
+
+/**
+ * Takes the configs a {@link ConfigPublisher} sends and makes them live in
+ * local managers, without reading or parsing their files. What changed is
+ * applied to the JSON the live config was built from and the new config is
+ * built from that, reusing every part of the old one that didn't change (see
+ * {@link ConfigManager#applyTree(JsonElement, long)}).
+ *
+ * <pre>
+ * ConfigSubscriber subscriber = new ConfigSubscriber(SocketTransport.tcp("configs.internal", 25580));
+ * subscriber.subscribe(shopManager).subscribe(ranksManager).start();
+ * </pre>
+ *
+ * A message that doesn't follow from what was applied last, like after a
+ * dropped connection, makes the subscriber ask for the whole config again.
+ * Each config is applied on its manager's lane, in order with the reloads
+ * of its file, so a slow onReload only holds up its own config.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class ConfigSubscriber implements Closeable {
+	private final ReplicationTransport transport;
+	private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+	public ConfigSubscriber(ReplicationTransport transport) {
+		this.transport = transport;
+	}
+
+	/**
+	 * Keep a manager's config in step with the one published under its file
+	 * name.
+	 *
+	 * @param manager
+	 * @return this
+	 */
+	public ConfigSubscriber subscribe(ConfigManager<?> manager) {
+		return subscribe(manager.getFileName(), manager);
+	}
+
+	public ConfigSubscriber subscribe(String name, ConfigManager<?> manager) {
+		targets.put(name, new Target(name, manager));
+		return this;
+	}
+
+	/**
+	 * Start receiving, once every manager is subscribed.
+	 *
+	 * @return this
+	 * @throws IOException
+	 */
+	public ConfigSubscriber start() throws IOException {
+		transport.openSubscriber(this::receive);
+		return this;
+	}
+
+	private void receive(ConfigDelta message) {
+		Target target = targets.get(message.getConfig());
+		if (target != null)
+			target.receive(message);
+	}
+
+	@Override
+	public void close() throws IOException {
+		transport.close();
+	}
+
+	private final class Target {
+		private final String name;
+		private final ConfigManager<?> manager;
+		/**
+		 * The publisher's JSON as of the last message taken
+		 */
+		private JsonElement tree;
+		private long epoch = -1;
+		private long sequence;
+		private boolean resyncing;
+
+		private Target(String name, ConfigManager<?> manager) {
+			this.name = name;
+			this.manager = manager;
+		}
+
+		private synchronized void receive(ConfigDelta message) {
+			boolean sameEpoch = message.getEpoch() == epoch;
+			// Already taken, like a resync answer with nothing new
+			if (sameEpoch && message.getSequence() <= sequence)
+				return;
+			JsonElement next;
+			if (message.getKind() == ConfigDelta.Kind.FULL) {
+				next = message.getBody();
+			} else {
+				if (resyncing)
+					return;
+				if (!sameEpoch || message.getBase() != sequence) {
+					resync();
+					return;
+				}
+				try {
+					next = TreeDelta.apply(tree, message.getBody().getAsJsonArray());
+				} catch (RuntimeException e) {
+					resync();
+					return;
+				}
+			}
+			tree = next;
+			epoch = message.getEpoch();
+			sequence = message.getSequence();
+			resyncing = false;
+			// A config the local node rejects (say, a world it doesn't have) leaves
+			// the previous one live; the JSON is still kept for the next message
+			manager.submitTree(next, message.getFingerprint());
+		}
+
+		private void resync() {
+			resyncing = true;
+			try {
+				transport.resync(name);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
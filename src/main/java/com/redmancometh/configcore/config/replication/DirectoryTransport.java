@@ -0,0 +1,245 @@
+package com.redmancometh.configcore.config.replication;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import com.google.gson.JsonParseException;
+import com.redmancometh.configcore.config.ConfigExecutors;
+
+/**
+ * Replicates through a directory every node can see, like an NFS mount. The
+ * publisher writes every message to a file of its own,
+ * {@code <config>.<epoch>.<version>.msg}, keeping the last
+ * {@value #KEPT_MESSAGES} of each config, and the whole config to
+ * {@code <config>.full}. Subscribers poll the directory for messages they
+ * haven't seen. Every file is written to a temporary one first and moved in
+ * place, so a subscriber never reads half of one.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class DirectoryTransport implements ReplicationTransport {
+	private static final int KEPT_MESSAGES = 64;
+	private static final String MESSAGE = ".msg";
+	private static final String FULL = ".full";
+	private final Path directory;
+	private final long pollInterval;
+	/**
+	 * The last message seen of each config, on a subscriber
+	 */
+	private final Map<String, Seen> seen = new HashMap<>();
+	private final Executor lane = ConfigExecutors.lane();
+	private final AtomicBoolean pollPending = new AtomicBoolean();
+	private Consumer<ConfigDelta> receiver;
+	private ScheduledFuture<?> future;
+
+	/**
+	 * @param directory
+	 * @param pollInterval how often subscribers look for new messages, in
+	 *                     milliseconds
+	 */
+	public DirectoryTransport(Path directory, long pollInterval) {
+		this.directory = directory;
+		this.pollInterval = pollInterval;
+	}
+
+	public DirectoryTransport(Path directory) {
+		this(directory, 250);
+	}
+
+	@Override
+	public void openPublisher() throws IOException {
+		Files.createDirectories(directory);
+	}
+
+	@Override
+	public synchronized void send(ConfigDelta message, ConfigDelta full) throws IOException {
+		String name = encode(message.getConfig());
+		write(name + "." + message.getEpoch() + "." + message.getSequence() + MESSAGE, message.encode());
+		write(name + FULL, full.encode());
+		// Drop the messages of earlier epochs and all but the latest of this one
+		for (MessageFile file : list().getOrDefault(message.getConfig(), new ArrayList<>())) {
+			if (file.epoch != message.getEpoch() || file.sequence <= message.getSequence() - KEPT_MESSAGES)
+				Files.deleteIfExists(file.path);
+		}
+	}
+
+	private void write(String name, byte[] data) throws IOException {
+		Path temp = Files.createTempFile(directory, ".replication", ".tmp");
+		try {
+			Files.write(temp, data);
+			Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	@Override
+	public void openSubscriber(Consumer<ConfigDelta> receiver) throws IOException {
+		this.receiver = receiver;
+		this.future = ConfigExecutors.scheduler().scheduleWithFixedDelay(() -> {
+			if (pollPending.compareAndSet(false, true))
+				lane.execute(this::poll);
+		}, 0, pollInterval, TimeUnit.MILLISECONDS);
+	}
+
+	private void poll() {
+		try {
+			for (Map.Entry<String, List<MessageFile>> config : list().entrySet()) {
+				List<MessageFile> files = config.getValue();
+				Seen joined = seen.get(config.getKey());
+				// Joining, or the publisher restarted: start over from the whole config
+				if (joined == null || files.stream().anyMatch((file) -> file.epoch != joined.epoch))
+					deliverFull(config.getKey());
+				files.sort(Comparator.comparingLong((MessageFile file) -> file.sequence));
+				for (MessageFile file : files) {
+					Seen last = seen.get(config.getKey());
+					if (last != null && file.epoch == last.epoch && file.sequence > last.sequence)
+						deliver(read(file.path));
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			pollPending.set(false);
+		}
+	}
+
+	@Override
+	public void resync(String config) {
+		lane.execute(() -> {
+			try {
+				deliverFull(config);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	private void deliverFull(String config) throws IOException {
+		byte[] data = read(directory.resolve(encode(config) + FULL));
+		if (data != null)
+			deliver(data);
+	}
+
+	private void deliver(byte[] data) {
+		if (data == null)
+			return;
+		ConfigDelta message;
+		try {
+			message = ConfigDelta.decode(data);
+		} catch (JsonParseException e) {
+			e.printStackTrace();
+			return;
+		}
+		seen.put(message.getConfig(), new Seen(message.getEpoch(), message.getSequence()));
+		try {
+			receiver.accept(message);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the contents, or null if the publisher deleted it meanwhile
+	 */
+	private static byte[] read(Path file) throws IOException {
+		try {
+			return Files.readAllBytes(file);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the message files in the directory by config
+	 */
+	private Map<String, List<MessageFile>> list() throws IOException {
+		Map<String, List<MessageFile>> files = new HashMap<>();
+		if (!Files.isDirectory(directory))
+			return files;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + MESSAGE)) {
+			for (Path path : stream) {
+				MessageFile file = MessageFile.parse(path);
+				if (file != null)
+					files.computeIfAbsent(file.config, (config) -> new ArrayList<>()).add(file);
+			}
+		}
+		return files;
+	}
+
+	@Override
+	public void close() {
+		if (future != null)
+			future.cancel(false);
+	}
+
+	private static String encode(String config) {
+		try {
+			return URLEncoder.encode(config, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class Seen {
+		private final long epoch;
+		private final long sequence;
+
+		private Seen(long epoch, long sequence) {
+			this.epoch = epoch;
+			this.sequence = sequence;
+		}
+	}
+
+	private static final class MessageFile {
+		private final Path path;
+		private final String config;
+		private final long epoch;
+		private final long sequence;
+
+		private MessageFile(Path path, String config, long epoch, long sequence) {
+			this.path = path;
+			this.config = config;
+			this.epoch = epoch;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * @return the file, or null if it's not named like a message
+		 */
+		private static MessageFile parse(Path path) {
+			String name = path.getFileName().toString();
+			name = name.substring(0, name.length() - MESSAGE.length());
+			int sequenceDot = name.lastIndexOf('.');
+			int epochDot = sequenceDot <= 0 ? -1 : name.lastIndexOf('.', sequenceDot - 1);
+			if (epochDot <= 0)
+				return null;
+			try {
+				return new MessageFile(path, URLDecoder.decode(name.substring(0, epochDot), "UTF-8"),
+						Long.parseLong(name.substring(epochDot + 1, sequenceDot)),
+						Long.parseLong(name.substring(sequenceDot + 1)));
+			} catch (NumberFormatException | UnsupportedEncodingException e) {
+				return null;
+			}
+		}
+	}
+}
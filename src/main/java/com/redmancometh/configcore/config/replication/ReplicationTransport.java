@@ -0,0 +1,54 @@
+package com.redmancometh.configcore.config.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link ConfigDelta}s from a {@link ConfigPublisher} to its
+ * {@link ConfigSubscriber}s. A transport is opened on one side only: by the
+ * publisher it's given to, or by the subscriber.
+ *
+ * The publisher side keeps the latest whole config of every name it sent, for
+ * subscribers that join later and for the ones that ask to
+ * {@link #resync(String)}.
+ *
+ * @author Redmancometh
+ *
+ */
+public interface ReplicationTransport extends Closeable {
+	/**
+	 * Start taking subscribers.
+	 *
+	 * @throws IOException
+	 */
+	void openPublisher() throws IOException;
+
+	/**
+	 * Hand a message to every subscriber.
+	 *
+	 * @param message what changed, or the whole config
+	 * @param full    the whole config as of the message
+	 * @throws IOException
+	 */
+	void send(ConfigDelta message, ConfigDelta full) throws IOException;
+
+	/**
+	 * Start receiving. Messages are handed to the receiver one at a time, in the
+	 * order they were sent; a subscriber that joins gets the whole of every
+	 * config first.
+	 *
+	 * @param receiver
+	 * @throws IOException
+	 */
+	void openSubscriber(Consumer<ConfigDelta> receiver) throws IOException;
+
+	/**
+	 * Ask for the whole of a config again, after a message that didn't follow
+	 * from what the subscriber has. It arrives through the receiver.
+	 *
+	 * @param config
+	 * @throws IOException
+	 */
+	void resync(String config) throws IOException;
+}
@@ -0,0 +1,332 @@
+package com.redmancometh.configcore.config.replication;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * Replicates over a TCP or Unix domain socket. The publisher listens and every
+ * subscriber keeps a connection to it, reconnecting when it drops; each
+ * connection starts with the whole of every config. Messages are framed with
+ * their length in front.
+ *
+ * Every subscriber has its own queue and sender thread, so sending never waits
+ * on the network and a stalled subscriber can't hold up the managers being
+ * published. One that falls too far behind is dropped, and starts over from
+ * the whole configs when it reconnects.
+ *
+ * Unix domain sockets are looked up at runtime, so they need Java 16 or newer
+ * to run, while TCP works everywhere.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class SocketTransport implements ReplicationTransport {
+	private static final int MAX_FRAME = Integer.getInteger("configcore.replication.maxFrame", 64 << 20);
+	private static final long RECONNECT_DELAY = Long.getLong("configcore.replication.reconnectDelay", 1000);
+	/**
+	 * How many messages a subscriber can have waiting before it's dropped
+	 */
+	private static final int MAX_BACKLOG = Integer.getInteger("configcore.replication.maxBacklog", 1024);
+	private final SocketAddress address;
+	/**
+	 * Set for Unix domain sockets, null for TCP
+	 */
+	private final ProtocolFamily family;
+	private final Path socketFile;
+	private final Map<String, ConfigDelta> latest = new ConcurrentHashMap<>();
+	private final List<Outbox> subscribers = new CopyOnWriteArrayList<>();
+	private ServerSocketChannel server;
+	private volatile SocketChannel upstream;
+	private volatile boolean closed;
+
+	private SocketTransport(SocketAddress address, ProtocolFamily family, Path socketFile) {
+		this.address = address;
+		this.family = family;
+		this.socketFile = socketFile;
+	}
+
+	/**
+	 * @param host the address the publisher listens on, or the one subscribers
+	 *             connect to
+	 * @param port
+	 * @return
+	 */
+	public static SocketTransport tcp(String host, int port) {
+		return new SocketTransport(new InetSocketAddress(host, port), null, null);
+	}
+
+	/**
+	 * @param socketFile where the publisher's socket is
+	 * @return
+	 * @throws UnsupportedOperationException before Java 16
+	 */
+	public static SocketTransport unix(Path socketFile) {
+		try {
+			ProtocolFamily family = StandardProtocolFamily.valueOf("UNIX");
+			SocketAddress address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+					.getMethod("of", Path.class).invoke(null, socketFile);
+			return new SocketTransport(address, family, socketFile);
+		} catch (ReflectiveOperationException | IllegalArgumentException e) {
+			throw new UnsupportedOperationException("Unix domain sockets need Java 16 or newer", e);
+		}
+	}
+
+	@Override
+	public void openPublisher() throws IOException {
+		server = family == null ? ServerSocketChannel.open() : open(ServerSocketChannel.class);
+		if (socketFile != null)
+			Files.deleteIfExists(socketFile);
+		server.bind(address);
+		start("Accept", this::accept);
+	}
+
+	private void accept() {
+		while (!closed) {
+			SocketChannel channel;
+			try {
+				channel = server.accept();
+			} catch (IOException e) {
+				if (!closed)
+					e.printStackTrace();
+				return;
+			}
+			if (family == null)
+				setNoDelay(channel);
+			Outbox outbox = new Outbox(channel);
+			// Under the same lock as send, so nothing is queued between the whole
+			// configs and the first message after them
+			synchronized (this) {
+				for (ConfigDelta full : latest.values())
+					outbox.frames.add(full.encode());
+				subscribers.add(outbox);
+			}
+			start("Sender", outbox::drain);
+			start("Subscriber", () -> serve(outbox));
+		}
+	}
+
+	/**
+	 * Answer a subscriber's resync requests until it goes away.
+	 */
+	private void serve(Outbox outbox) {
+		try {
+			while (!closed) {
+				ConfigDelta request = ConfigDelta.decode(read(outbox.channel));
+				if (request.getKind() != ConfigDelta.Kind.RESYNC)
+					continue;
+				synchronized (this) {
+					ConfigDelta full = latest.get(request.getConfig());
+					if (full != null && !outbox.offer(full.encode()))
+						return;
+				}
+			}
+		} catch (IOException | JsonParseException e) {
+			// Gone, or not talking this protocol
+		} finally {
+			drop(outbox);
+		}
+	}
+
+	@Override
+	public synchronized void send(ConfigDelta message, ConfigDelta full) {
+		latest.put(full.getConfig(), full);
+		byte[] frame = message.encode();
+		for (Outbox outbox : subscribers) {
+			if (!outbox.offer(frame))
+				drop(outbox);
+		}
+	}
+
+	/**
+	 * Disconnect a subscriber. It reconnects and starts over from the whole
+	 * configs.
+	 */
+	private void drop(Outbox outbox) {
+		subscribers.remove(outbox);
+		outbox.close();
+	}
+
+	@Override
+	public void openSubscriber(Consumer<ConfigDelta> receiver) throws IOException {
+		start("Receiver", () -> receive(receiver));
+	}
+
+	private void receive(Consumer<ConfigDelta> receiver) {
+		while (!closed) {
+			try (SocketChannel channel = family == null ? SocketChannel.open() : open(SocketChannel.class)) {
+				channel.connect(address);
+				if (family == null)
+					setNoDelay(channel);
+				upstream = channel;
+				while (!closed) {
+					ConfigDelta message = ConfigDelta.decode(read(channel));
+					try {
+						receiver.accept(message);
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					}
+				}
+			} catch (IOException | JsonParseException e) {
+				// The publisher is down or restarting, keep trying
+			} finally {
+				upstream = null;
+			}
+			try {
+				Thread.sleep(RECONNECT_DELAY);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void resync(String config) throws IOException {
+		SocketChannel channel = upstream;
+		if (channel != null)
+			write(channel, ConfigDelta.resync(config).encode());
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		if (server != null)
+			server.close();
+		for (Outbox outbox : subscribers)
+			outbox.close();
+		subscribers.clear();
+		SocketChannel channel = upstream;
+		if (channel != null)
+			close(channel);
+		if (server != null && socketFile != null)
+			Files.deleteIfExists(socketFile);
+	}
+
+	/**
+	 * Frames are read and written on the channel itself rather than through its
+	 * streams, which would block writes while a read waits.
+	 */
+	private static void write(SocketChannel channel, byte[] data) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(4).putInt(data.length);
+		header.flip();
+		ByteBuffer[] frame = { header, ByteBuffer.wrap(data) };
+		synchronized (channel) {
+			while (frame[1].hasRemaining())
+				channel.write(frame);
+		}
+	}
+
+	private static byte[] read(SocketChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(4);
+		readFully(channel, header);
+		int length = header.getInt(0);
+		if (length < 0 || length > MAX_FRAME)
+			throw new IOException("Frame of " + length + " bytes");
+		ByteBuffer body = ByteBuffer.allocate(length);
+		readFully(channel, body);
+		return body.array();
+	}
+
+	private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0)
+				throw new EOFException();
+		}
+	}
+
+	/**
+	 * {@code ServerSocketChannel.open(family)} or
+	 * {@code SocketChannel.open(family)}, which are Java 15+
+	 */
+	private <C> C open(Class<C> type) throws IOException {
+		try {
+			return type.cast(type.getMethod("open", ProtocolFamily.class).invoke(null, family));
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Can't open a " + family + " socket", e);
+		}
+	}
+
+	private static void setNoDelay(SocketChannel channel) {
+		try {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void close(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The frames waiting to go out to one subscriber, written by its own sender
+	 * thread.
+	 */
+	private final class Outbox {
+		/**
+		 * Queued last, to stop the sender
+		 */
+		private final byte[] end = new byte[0];
+		private final SocketChannel channel;
+		private final BlockingQueue<byte[]> frames = new LinkedBlockingQueue<>();
+
+		private Outbox(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * @return false if the subscriber is too far behind to take more
+		 */
+		private boolean offer(byte[] frame) {
+			return frames.size() < MAX_BACKLOG && frames.add(frame);
+		}
+
+		private void drain() {
+			try {
+				byte[] frame;
+				while ((frame = frames.take()) != end)
+					write(channel, frame);
+			} catch (IOException e) {
+				// Gone; closing the channel also ends a write that's stuck
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				drop(this);
+			}
+		}
+
+		private void close() {
+			frames.clear();
+			frames.add(end);
+			SocketTransport.close(channel);
+		}
+	}
+
+	private static void start(String role, Runnable task) {
+		Thread thread = new Thread(task, "ConfigCore-Replication-" + role);
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
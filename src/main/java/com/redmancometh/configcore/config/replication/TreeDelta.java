@@ -0,0 +1,200 @@
+package com.redmancometh.configcore.config.replication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The operations that turn one JSON tree into another, and applying them.
+ * Each operation is an array: {@code ["set", path, value]},
+ * {@code ["remove", path]} or {@code ["truncate", path, length]}, where the
+ * path is an array of member names and array indexes. A set one past the end
+ * of an array appends to it.
+ *
+ * Applying never changes the tree it's given: every object and array on the
+ * way to a change is copied, and everything else is shared with it.
+ *
+ * @author Redmancometh
+ *
+ */
+final class TreeDelta {
+	private TreeDelta() {
+	}
+
+	static JsonArray diff(JsonElement before, JsonElement after) {
+		JsonArray operations = new JsonArray();
+		diff(new ArrayList<>(), before, after, operations);
+		return operations;
+	}
+
+	/**
+	 * @param path the path so far, restored before returning
+	 */
+	private static void diff(List<Object> path, JsonElement before, JsonElement after, JsonArray operations) {
+		if (before.isJsonObject() && after.isJsonObject()) {
+			JsonObject oldObject = before.getAsJsonObject();
+			JsonObject newObject = after.getAsJsonObject();
+			for (Map.Entry<String, JsonElement> member : oldObject.entrySet()) {
+				if (!newObject.has(member.getKey()))
+					operations.add(operation("remove", path, member.getKey(), null));
+			}
+			for (Map.Entry<String, JsonElement> member : newObject.entrySet()) {
+				JsonElement oldValue = oldObject.get(member.getKey());
+				if (oldValue == null) {
+					operations.add(operation("set", path, member.getKey(), member.getValue()));
+					continue;
+				}
+				path.add(member.getKey());
+				diff(path, oldValue, member.getValue(), operations);
+				path.remove(path.size() - 1);
+			}
+		} else if (before.isJsonArray() && after.isJsonArray()) {
+			JsonArray oldArray = before.getAsJsonArray();
+			JsonArray newArray = after.getAsJsonArray();
+			int common = Math.min(oldArray.size(), newArray.size());
+			for (int i = 0; i < common; i++) {
+				path.add(i);
+				diff(path, oldArray.get(i), newArray.get(i), operations);
+				path.remove(path.size() - 1);
+			}
+			for (int i = common; i < newArray.size(); i++)
+				operations.add(operation("set", path, i, newArray.get(i)));
+			if (newArray.size() < oldArray.size()) {
+				JsonArray truncate = operation("truncate", path, null, null);
+				truncate.add(newArray.size());
+				operations.add(truncate);
+			}
+		} else if (!before.equals(after)) {
+			operations.add(operation("set", path, null, after));
+		}
+	}
+
+	private static JsonArray operation(String kind, List<Object> path, Object last, JsonElement value) {
+		JsonArray segments = new JsonArray();
+		for (Object segment : path)
+			segments.add(segment instanceof Integer ? new JsonPrimitive((Integer) segment)
+					: new JsonPrimitive((String) segment));
+		if (last != null)
+			segments.add(last instanceof Integer ? new JsonPrimitive((Integer) last) : new JsonPrimitive((String) last));
+		JsonArray operation = new JsonArray();
+		operation.add(kind);
+		operation.add(segments);
+		if (value != null)
+			operation.add(value);
+		return operation;
+	}
+
+	/**
+	 * @param tree
+	 * @param operations
+	 * @return the tree with the operations applied
+	 * @throws IllegalStateException if they don't fit the tree, so it isn't the
+	 *                               one they were made from
+	 */
+	static JsonElement apply(JsonElement tree, JsonArray operations) {
+		Set<JsonElement> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+		JsonElement root = tree;
+		for (JsonElement element : operations) {
+			JsonArray operation = element.getAsJsonArray();
+			String kind = operation.get(0).getAsString();
+			JsonArray path = operation.get(1).getAsJsonArray();
+			if (kind.equals("set") && path.size() == 0) {
+				root = operation.get(2);
+				continue;
+			}
+			root = copy(root, copied);
+			// Copy everything on the way down, up to the parent of what's changed
+			// (or for a truncate, the array itself)
+			int depth = kind.equals("truncate") ? path.size() : path.size() - 1;
+			JsonElement container = root;
+			for (int i = 0; i < depth; i++) {
+				JsonElement child = get(container, path.get(i));
+				JsonElement copy = copy(child, copied);
+				if (copy != child)
+					put(container, path.get(i), copy);
+				container = copy;
+			}
+			switch (kind) {
+			case "set":
+				put(container, path.get(path.size() - 1), operation.get(2));
+				break;
+			case "remove":
+				if (!container.isJsonObject()
+						|| container.getAsJsonObject().remove(path.get(path.size() - 1).getAsString()) == null)
+					throw new IllegalStateException("Nothing to remove at " + path);
+				break;
+			case "truncate":
+				if (!container.isJsonArray())
+					throw new IllegalStateException("No array to truncate at " + path);
+				JsonArray array = container.getAsJsonArray();
+				int length = operation.get(2).getAsInt();
+				while (array.size() > length)
+					array.remove(array.size() - 1);
+				break;
+			default:
+				throw new IllegalStateException("Unknown operation " + kind);
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * @return a shallow copy of the object or array, or the one already copied
+	 *         in this apply
+	 */
+	private static JsonElement copy(JsonElement element, Set<JsonElement> copied) {
+		if (copied.contains(element))
+			return element;
+		JsonElement copy;
+		if (element.isJsonObject()) {
+			JsonObject object = new JsonObject();
+			for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet())
+				object.add(member.getKey(), member.getValue());
+			copy = object;
+		} else if (element.isJsonArray()) {
+			JsonArray array = new JsonArray(element.getAsJsonArray().size());
+			array.addAll(element.getAsJsonArray());
+			copy = array;
+		} else {
+			throw new IllegalStateException("Expected an object or array, got " + element);
+		}
+		copied.add(copy);
+		return copy;
+	}
+
+	private static JsonElement get(JsonElement container, JsonElement segment) {
+		JsonElement child = null;
+		if (container.isJsonObject())
+			child = container.getAsJsonObject().get(segment.getAsString());
+		else if (container.isJsonArray() && segment.getAsInt() < container.getAsJsonArray().size())
+			child = container.getAsJsonArray().get(segment.getAsInt());
+		if (child == null)
+			throw new IllegalStateException("Nothing at " + segment);
+		return child;
+	}
+
+	private static void put(JsonElement container, JsonElement segment, JsonElement value) {
+		if (container.isJsonObject()) {
+			container.getAsJsonObject().add(segment.getAsString(), value);
+			return;
+		}
+		if (!container.isJsonArray())
+			throw new IllegalStateException("Expected an object or array at " + segment);
+		JsonArray array = container.getAsJsonArray();
+		int index = segment.getAsInt();
+		if (index == array.size())
+			array.add(value);
+		else if (index < array.size())
+			array.set(index, value);
+		else
+			throw new IllegalStateException("Index " + index + " is past the end of the array");
+	}
+}
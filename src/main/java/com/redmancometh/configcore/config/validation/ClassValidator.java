@@ -0,0 +1,229 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The constraints of one class, compiled once from its annotations into a
+ * flat list of checks per field. A class whose constraints don't fit its
+ * fields (a {@link Pattern} on an int, say) fails when it's compiled, which is
+ * when its Gson adapter is first built.
+ *
+ * @author Redmancometh
+ *
+ */
+public final class ClassValidator {
+	private static final Map<Class<?>, ClassValidator> validators = new ConcurrentHashMap<>();
+	private final FieldRules[] fields;
+
+	private ClassValidator(FieldRules[] fields) {
+		this.fields = fields;
+	}
+
+	public static ClassValidator of(Class<?> clazz) {
+		ClassValidator validator = validators.get(clazz);
+		return validator != null ? validator : validators.computeIfAbsent(clazz, ClassValidator::compile);
+	}
+
+	/**
+	 * @return whether the class has no constraints at all
+	 */
+	public boolean isEmpty() {
+		return fields.length == 0;
+	}
+
+	/**
+	 * Check the fields of an object and report what's broken to the open
+	 * {@link ValidationScope}, or throw it if there is none.
+	 *
+	 * @param value
+	 * @param path   where the object is in the file, like {@code $.spawn}
+	 * @param naming how field names map to names in the file
+	 */
+	public void validate(Object value, String path, FieldNamingStrategy naming) {
+		for (FieldRules rules : fields) {
+			Object fieldValue;
+			try {
+				fieldValue = rules.field.get(value);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+			for (Check check : rules.checks) {
+				String error = check.test(fieldValue);
+				if (error != null) {
+					ValidationScope.report(path + "." + rules.name(naming), error);
+					break;
+				}
+			}
+		}
+	}
+
+	private static ClassValidator compile(Class<?> clazz) {
+		List<FieldRules> compiled = new ArrayList<>();
+		for (Class<?> type = clazz; type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+				List<Check> checks = checks(field);
+				if (checks.isEmpty())
+					continue;
+				field.setAccessible(true);
+				compiled.add(new FieldRules(field, checks.toArray(new Check[0])));
+			}
+		}
+		return new ClassValidator(compiled.toArray(new FieldRules[0]));
+	}
+
+	private static List<Check> checks(Field field) {
+		List<Check> checks = new ArrayList<>(4);
+		// Required goes first, the others pass on null
+		if (field.isAnnotationPresent(Required.class))
+			checks.add((value) -> value == null ? "is required" : null);
+		Range range = field.getAnnotation(Range.class);
+		if (range != null)
+			checks.add(rangeCheck(field, range.min(), range.max()));
+		Pattern pattern = field.getAnnotation(Pattern.class);
+		if (pattern != null)
+			checks.add(patternCheck(field, pattern.value()));
+		OneOf oneOf = field.getAnnotation(OneOf.class);
+		if (oneOf != null)
+			checks.add(oneOfCheck(field, oneOf.value(), oneOf.ignoreCase()));
+		return checks;
+	}
+
+	private static Check rangeCheck(Field field, double min, double max) {
+		Class<?> type = boxed(field.getType());
+		if (Number.class.isAssignableFrom(type)) {
+			return (value) -> {
+				if (value == null)
+					return null;
+				double number = ((Number) value).doubleValue();
+				if (number < min)
+					return format(number) + " is below the minimum of " + format(min);
+				if (number > max)
+					return format(number) + " is above the maximum of " + format(max);
+				return Double.isNaN(number) ? "is not a number" : null;
+			};
+		}
+		if (CharSequence.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+				|| Map.class.isAssignableFrom(type) || type.isArray()) {
+			return (value) -> {
+				if (value == null)
+					return null;
+				int size = size(value);
+				if (size < min)
+					return "has " + size + (size == 1 ? " entry" : " entries") + ", needs at least " + format(min);
+				if (size > max)
+					return "has " + size + (size == 1 ? " entry" : " entries") + ", allows at most " + format(max);
+				return null;
+			};
+		}
+		throw unsupported(field, Range.class);
+	}
+
+	private static Check patternCheck(Field field, String regex) {
+		if (!CharSequence.class.isAssignableFrom(field.getType()))
+			throw unsupported(field, Pattern.class);
+		java.util.regex.Pattern compiled = java.util.regex.Pattern.compile(regex);
+		return (value) -> value == null || compiled.matcher((CharSequence) value).matches() ? null
+				: "\"" + value + "\" doesn't match " + regex;
+	}
+
+	private static Check oneOfCheck(Field field, String[] allowed, boolean ignoreCase) {
+		Class<?> type = boxed(field.getType());
+		if (!CharSequence.class.isAssignableFrom(type) && !Number.class.isAssignableFrom(type)
+				&& type != Character.class && !type.isEnum())
+			throw unsupported(field, OneOf.class);
+		// Enum constants are written in any case in configs, so they're always
+		// compared ignoring it
+		boolean anyCase = ignoreCase || type.isEnum();
+		Set<String> values = new HashSet<>();
+		for (String value : allowed)
+			values.add(anyCase ? value.toLowerCase(Locale.ROOT) : value);
+		String described = Arrays.toString(allowed);
+		return (value) -> {
+			if (value == null)
+				return null;
+			String text = value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+			if (values.contains(anyCase ? text.toLowerCase(Locale.ROOT) : text))
+				return null;
+			// Whole numbers are listed as 5, not 5.0
+			if (value instanceof Double || value instanceof Float) {
+				String whole = format(((Number) value).doubleValue());
+				if (values.contains(whole))
+					return null;
+			}
+			return "\"" + text + "\" is not one of " + described;
+		};
+	}
+
+	private static int size(Object value) {
+		if (value instanceof CharSequence)
+			return ((CharSequence) value).length();
+		if (value instanceof Collection)
+			return ((Collection<?>) value).size();
+		if (value instanceof Map)
+			return ((Map<?, ?>) value).size();
+		return Array.getLength(value);
+	}
+
+	private static String format(double number) {
+		return number == Math.rint(number) && !Double.isInfinite(number) ? Long.toString((long) number)
+				: Double.toString(number);
+	}
+
+	private static Class<?> boxed(Class<?> type) {
+		if (!type.isPrimitive())
+			return type;
+		if (type == boolean.class)
+			return Boolean.class;
+		if (type == char.class)
+			return Character.class;
+		// Every other primitive is numeric
+		return Number.class;
+	}
+
+	private static IllegalArgumentException unsupported(Field field, Class<?> annotation) {
+		return new IllegalArgumentException("@" + annotation.getSimpleName() + " doesn't apply to "
+				+ field.getDeclaringClass().getName() + "." + field.getName() + " of type "
+				+ field.getType().getSimpleName());
+	}
+
+	@FunctionalInterface
+	private interface Check {
+		/**
+		 * @return what's wrong with the value, or null if nothing is
+		 */
+		String test(Object value);
+	}
+
+	private static final class FieldRules {
+		private final Field field;
+		private final Check[] checks;
+		private final String serializedName;
+
+		private FieldRules(Field field, Check[] checks) {
+			this.field = field;
+			this.checks = checks;
+			SerializedName annotation = field.getAnnotation(SerializedName.class);
+			this.serializedName = annotation == null ? null : annotation.value();
+		}
+
+		private String name(FieldNamingStrategy naming) {
+			return serializedName != null ? serializedName : naming.translateName(field);
+		}
+	}
+}
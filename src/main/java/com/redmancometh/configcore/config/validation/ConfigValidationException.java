@@ -0,0 +1,40 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * A config parsed but broke its constraints. Being a
+ * {@link JsonParseException}, it makes a reload rejected like a syntax error
+ * does, so the live config stays.
+ *
+ * @author Redmancometh
+ *
+ */
+public class ConfigValidationException extends JsonParseException {
+	private static final long serialVersionUID = 1L;
+	private final List<String> errors;
+
+	public ConfigValidationException(List<String> errors) {
+		super(describe(errors));
+		this.errors = Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * @return every broken constraint, as {@code path: what's wrong}
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	private static String describe(List<String> errors) {
+		if (errors.size() == 1)
+			return errors.get(0);
+		StringBuilder message = new StringBuilder().append(errors.size()).append(" invalid values:");
+		for (String error : errors)
+			message.append("\n  ").append(error);
+		return message.toString();
+	}
+}
@@ -0,0 +1,22 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The value must be one of the given ones. Works on strings, numbers,
+ * characters and enums, which are compared by constant name ignoring case.
+ * Null values are left to {@link Required}.
+ *
+ * @author Redmancometh
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface OneOf {
+	String[] value();
+
+	boolean ignoreCase() default false;
+}
@@ -0,0 +1,19 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A string must match the regular expression as a whole. Null values are left
+ * to {@link Required}.
+ *
+ * @author Redmancometh
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Pattern {
+	String value();
+}
@@ -0,0 +1,22 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A number must lie between min and max, inclusive. On strings, collections,
+ * maps and arrays it bounds the length or number of entries instead. Null
+ * values are left to {@link Required}.
+ *
+ * @author Redmancometh
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Range {
+	double min() default Double.NEGATIVE_INFINITY;
+
+	double max() default Double.POSITIVE_INFINITY;
+}
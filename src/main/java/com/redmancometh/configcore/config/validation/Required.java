@@ -0,0 +1,18 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The field must be in the file and not null. Primitives always have a value,
+ * so put it on object fields.
+ *
+ * @author Redmancometh
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Required {
+}
@@ -0,0 +1,72 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.io.IOException;
+
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Checks the constraints of every class that has any ({@link Required},
+ * {@link Range}, {@link Pattern}, {@link OneOf}) as each of its objects is
+ * read, inside the streaming parse, so there's no second walk over the
+ * config. Broken constraints are reported with their path to the open
+ * {@link ValidationScope}; without one, the outermost object read throws them.
+ * Registered on every Gson out of the GsonRegistry.
+ *
+ * @author Redmancometh
+ *
+ */
+public class ValidatingTypeAdapterFactory implements TypeAdapterFactory {
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		Class<?> raw = type.getRawType();
+		if (raw.isPrimitive() || raw.isArray() || raw.isInterface() || raw.isEnum()
+				|| raw.getName().startsWith("java."))
+			return null;
+		ClassValidator validator = ClassValidator.of(raw);
+		if (validator.isEmpty())
+			return null;
+		return new ValidatingAdapter<>(gson.getDelegateAdapter(this, type), validator, gson.fieldNamingStrategy());
+	}
+
+	/**
+	 * @return the adapter a validating one wraps, or the adapter itself
+	 */
+	public static TypeAdapter<?> unwrap(TypeAdapter<?> adapter) {
+		return adapter instanceof ValidatingAdapter ? ((ValidatingAdapter<?>) adapter).delegate : adapter;
+	}
+
+	private static final class ValidatingAdapter<T> extends TypeAdapter<T> {
+		private final TypeAdapter<T> delegate;
+		private final ClassValidator validator;
+		private final FieldNamingStrategy naming;
+
+		private ValidatingAdapter(TypeAdapter<T> delegate, ClassValidator validator, FieldNamingStrategy naming) {
+			this.delegate = delegate;
+			this.validator = validator;
+			this.naming = naming;
+		}
+
+		@Override
+		public T read(JsonReader in) throws IOException {
+			try (ValidationScope scope = ValidationScope.open()) {
+				String path = scope.resolve(in.getPath());
+				T value = delegate.read(in);
+				if (value != null)
+					validator.validate(value, path, naming);
+				scope.throwIfInvalid();
+				return value;
+			}
+		}
+
+		@Override
+		public void write(JsonWriter out, T value) throws IOException {
+			delegate.write(out, value);
+		}
+	}
+}
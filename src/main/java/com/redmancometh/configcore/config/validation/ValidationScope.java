@@ -0,0 +1,130 @@
+package com.redmancometh.configcore.config.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the broken constraints of one parse on the current thread, so a
+ * config with several bad values is rejected with all of them at once instead
+ * of one per reload. Scopes nest: only the outermost one throws, and only when
+ * asked to, once the whole parse is done.
+ *
+ * <pre>
+ * try (ValidationScope validation = ValidationScope.open()) {
+ * 	config = gson.fromJson(in, clazz);
+ * 	validation.throwIfInvalid();
+ * }
+ * </pre>
+ *
+ * @author Redmancometh
+ *
+ */
+public final class ValidationScope implements AutoCloseable {
+	private static final int MAX_ERRORS = 50;
+	private static final ThreadLocal<ValidationScope> current = new ThreadLocal<>();
+	private final List<String> errors = new ArrayList<>();
+	private int dropped;
+	private int depth;
+	private String base = "$";
+
+	private ValidationScope() {
+	}
+
+	/**
+	 * Join the scope already open on this thread, or open one.
+	 *
+	 * @return
+	 */
+	public static ValidationScope open() {
+		ValidationScope scope = current.get();
+		if (scope == null) {
+			scope = new ValidationScope();
+			current.set(scope);
+		}
+		scope.depth++;
+		return scope;
+	}
+
+	/**
+	 * @return the scope open on this thread, or null
+	 */
+	public static ValidationScope current() {
+		return current.get();
+	}
+
+	/**
+	 * Report a broken constraint to the open scope. Without one there's nothing
+	 * to collect into, so it's thrown right away.
+	 *
+	 * @param path    where in the file, like {@code $.spawn.x}
+	 * @param message
+	 */
+	public static void report(String path, String message) {
+		ValidationScope scope = current.get();
+		if (scope == null)
+			throw new ConfigValidationException(Collections.singletonList(path + ": " + message));
+		scope.add(path, message);
+	}
+
+	public void add(String path, String message) {
+		if (errors.size() < MAX_ERRORS)
+			errors.add(path + ": " + message);
+		else
+			dropped++;
+	}
+
+	/**
+	 * Turn a reader's path into one from the root of the file. They're the same
+	 * unless the reader only covers a part of it, see {@link #rebase(String)}.
+	 *
+	 * @param readerPath
+	 * @return
+	 */
+	public String resolve(String readerPath) {
+		if (base.equals("$") || !readerPath.startsWith("$"))
+			return readerPath;
+		return base + readerPath.substring(1);
+	}
+
+	/**
+	 * Make reads that follow report paths below the given one, for when what's
+	 * read is a part of a file rather than all of it.
+	 *
+	 * @param base the path of the part, like {@code $.shops.weapons[2]}
+	 * @return the previous base, to put back afterwards
+	 */
+	public String rebase(String base) {
+		String previous = this.base;
+		this.base = base;
+		return previous;
+	}
+
+	public boolean isValid() {
+		return errors.isEmpty();
+	}
+
+	public List<String> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * Throw everything collected, if this is the outermost scope.
+	 *
+	 * @throws ConfigValidationException
+	 */
+	public void throwIfInvalid() {
+		if (depth != 1 || errors.isEmpty())
+			return;
+		List<String> all = new ArrayList<>(errors);
+		if (dropped > 0)
+			all.add("... and " + dropped + " more");
+		throw new ConfigValidationException(all);
+	}
+
+	@Override
+	public void close() {
+		if (--depth == 0)
+			current.remove();
+	}
+}
@@ -0,0 +1,74 @@
+package com.redmancometh.configcore.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Modifier;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The compiled adapter has to read and write exactly what Gson's reflective
+ * one does, with the exclusions the GsonRegistry sets up.
+ *
+ * @author Redmancometh
+ *
+ */
+public class CompiledTypeAdapterFactoryTest {
+	private final Gson reflective = new GsonBuilder().excludeFieldsWithModifiers(Modifier.PROTECTED).create();
+	private final Gson compiled = new GsonBuilder().excludeFieldsWithModifiers(Modifier.PROTECTED)
+			.registerTypeAdapterFactory(new CompiledTypeAdapterFactory()).create();
+
+	@Test
+	public void writesStaticFieldsLikeGson() {
+		Versioned.counter = 7;
+		Versioned config = new Versioned();
+		config.name = "shop";
+		config.slots = 12;
+		assertEquals(reflective.toJson(config), compiled.toJson(config));
+		assertEquals("{\"VERSION\":3,\"counter\":7,\"name\":\"shop\",\"slots\":12}", compiled.toJson(config));
+	}
+
+	@Test
+	public void readsStaticFieldsLikeGson() {
+		String json = "{\"counter\":5,\"name\":\"shop\",\"slots\":4}";
+		Versioned.counter = 0;
+		Versioned expected = reflective.fromJson(json, Versioned.class);
+		assertEquals(5, Versioned.counter);
+		Versioned.counter = 0;
+		Versioned actual = compiled.fromJson(json, Versioned.class);
+		assertEquals(5, Versioned.counter);
+		assertEquals(expected.name, actual.name);
+		assertEquals(expected.slots, actual.slots);
+	}
+
+	@Test
+	public void rejectsStaticFinalValuesLikeGson() {
+		String json = "{\"VERSION\":4}";
+		assertThrows(AssertionError.class, () -> reflective.fromJson(json, Versioned.class));
+		assertThrows(AssertionError.class, () -> compiled.fromJson(json, Versioned.class));
+		assertEquals(3, Versioned.VERSION);
+	}
+
+	@Test
+	public void skipsExcludedFields() {
+		Versioned config = new Versioned();
+		config.hidden = "not written";
+		assertFalse(compiled.toJson(config).contains("hidden"));
+		assertNull(compiled.fromJson("{\"hidden\":\"read\"}", Versioned.class).hidden);
+	}
+
+	@CompiledConfig
+	static class Versioned {
+		public static final int VERSION = 3;
+		static int counter;
+		String name;
+		int slots;
+		protected String hidden;
+	}
+}
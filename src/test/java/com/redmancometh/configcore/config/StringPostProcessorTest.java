@@ -0,0 +1,72 @@
+package com.redmancometh.configcore.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.util.Random;
+
+import org.bukkit.ChatColor;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The processors have to give what the contains/replace/translate chain
+ * PathAdapter used to run gives, for any string.
+ *
+ * @author Redmancometh
+ *
+ */
+public class StringPostProcessorTest {
+	private static final int SAMPLES = 2_000_000;
+	/**
+	 * Weighted towards what gets rewritten, with the URL and JDBC markers in
+	 * pieces so they turn up whole now and then.
+	 */
+	private static final String[] PIECES = { "&", "&", "/", "/", "\\", "a", "A", "k", "r", "R", "9", "z", "G", " ",
+			"_", "\u00a7", "\u00e9", "h", "t", "p", "j", "d", "b", "c", "http", "jdbc", "//", "&&" };
+
+	@Test
+	public void standardMatchesTheOldChain() {
+		Random random = new Random(12);
+		for (int i = 0; i < SAMPLES; i++) {
+			String value = randomString(random);
+			assertEquals(oldChain(value), StringPostProcessor.STANDARD.process(value), value);
+		}
+	}
+
+	@Test
+	public void colorsAndPathsMatchTheirOldSteps() {
+		Random random = new Random(34);
+		for (int i = 0; i < SAMPLES / 4; i++) {
+			String value = randomString(random);
+			assertEquals(ChatColor.translateAlternateColorCodes('&', value), StringPostProcessor.COLORS.process(value),
+					value);
+			assertEquals(value.replace("//", File.separator).replace("\\", File.separator),
+					StringPostProcessor.PATHS.process(value), value);
+		}
+	}
+
+	@Test
+	public void returnsUnchangedStringsAsIs() {
+		String value = new String("plain text, nothing to do");
+		assertSame(value, StringPostProcessor.STANDARD.process(value));
+	}
+
+	/**
+	 * What PathAdapter did to every string before StringPostProcessor.
+	 */
+	private static String oldChain(String string) {
+		if (string.contains("http") || string.contains("jdbc"))
+			return string;
+		return ChatColor.translateAlternateColorCodes('&',
+				string.replace("//", File.separator).replace("\\", File.separator));
+	}
+
+	private static String randomString(Random random) {
+		StringBuilder value = new StringBuilder();
+		int pieces = random.nextInt(12);
+		for (int i = 0; i < pieces; i++)
+			value.append(PIECES[random.nextInt(PIECES.length)]);
+		return value.toString();
+	}
+}
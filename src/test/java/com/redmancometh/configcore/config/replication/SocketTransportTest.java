@@ -0,0 +1,366 @@
+package com.redmancometh.configcore.config.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.redmancometh.configcore.config.ConfigManager;
+
+/**
+ * Replication over localhost TCP: one publisher, two subscribers, and a raw
+ * subscriber recording what goes over the wire.
+ *
+ * @author Redmancometh
+ *
+ */
+public class SocketTransportTest {
+	private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+	static {
+		// Read once, when the transport is first loaded
+		System.setProperty("configcore.replication.reconnectDelay", "50");
+	}
+
+	private final List<Closeable> open = new ArrayList<>();
+	private final int port = freePort();
+	private final ConfigManager<Shop> source = new ConfigManager<>("replication-source.json", Shop.class);
+	private final ConfigManager<Shop> first = new ConfigManager<>("replication-first.json", Shop.class);
+	private final ConfigManager<Shop> second = new ConfigManager<>("replication-second.json", Shop.class);
+	private final List<ConfigDelta> recorded = new CopyOnWriteArrayList<>();
+	private long fingerprint;
+
+	@AfterEach
+	public void closeAll() {
+		for (int i = open.size() - 1; i >= 0; i--) {
+			try {
+				open.get(i).close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	public void sendsTheWholeConfigThenWhatChanged() throws IOException {
+		publisher();
+		publish(1, "sword");
+		subscribe(port, first);
+		subscribe(port, second);
+		record(port);
+		await(() -> recorded.size() == 1);
+		awaitItems(first, "sword");
+		awaitItems(second, "sword");
+
+		publish(2, "sword", "bow", "arrow");
+		awaitItems(first, "sword", "bow", "arrow");
+		awaitItems(second, "sword", "bow", "arrow");
+		publish(3, "bow");
+		awaitItems(first, "bow");
+		awaitItems(second, "bow");
+
+		await(() -> recorded.size() == 3);
+		assertEquals(Arrays.asList(ConfigDelta.Kind.FULL, ConfigDelta.Kind.DELTA, ConfigDelta.Kind.DELTA), kinds());
+		assertEquals(3, first.getConfig().version);
+	}
+
+	@Test
+	public void resyncsAfterAMissedMessage() throws IOException {
+		publisher();
+		publish(1, "sword");
+		Proxy proxy = proxy();
+		subscribe(proxy.port, first);
+		subscribe(port, second);
+		awaitItems(first, "sword");
+
+		// The next delta never arrives, so the one after doesn't follow from what
+		// the subscriber has and it asks for the whole config
+		proxy.dropNext.set(1);
+		publish(2, "sword", "bow");
+		awaitItems(second, "sword", "bow");
+		assertEquals(Arrays.asList("sword"), first.getConfig().items);
+		publish(3, "sword", "bow", "arrow");
+		awaitItems(first, "sword", "bow", "arrow");
+		awaitItems(second, "sword", "bow", "arrow");
+		assertTrue(proxy.resyncs.get() > 0, "no resync was asked for");
+
+		publish(4, "arrow");
+		awaitItems(first, "arrow");
+	}
+
+	@Test
+	public void catchesUpAfterADroppedConnection() throws IOException {
+		publisher();
+		publish(1, "sword");
+		Proxy proxy = proxy();
+		subscribe(proxy.port, first);
+		subscribe(port, second);
+		awaitItems(first, "sword");
+
+		proxy.cut();
+		publish(2, "sword", "bow");
+		publish(3, "sword", "bow", "arrow");
+		awaitItems(second, "sword", "bow", "arrow");
+		// Reconnected through the proxy, starting over from the whole config
+		awaitItems(first, "sword", "bow", "arrow");
+		assertTrue(proxy.connections.get() > 1, "never reconnected");
+
+		publish(4, "bow");
+		awaitItems(first, "bow");
+		awaitItems(second, "bow");
+	}
+
+	@Test
+	public void takesOverFromARestartedPublisher() throws IOException {
+		ConfigPublisher publisher = publisher();
+		publish(1, "sword");
+		subscribe(port, first);
+		subscribe(port, second);
+		record(port);
+		await(() -> recorded.size() == 1);
+		publish(2, "sword", "bow");
+		awaitItems(first, "sword", "bow");
+		awaitItems(second, "sword", "bow");
+		await(() -> recorded.size() == 2);
+
+		publisher.close();
+		open.remove(publisher);
+		publisher();
+		// The new publisher starts with the live config, under another epoch and
+		// with its versions starting over
+		publish(3, "arrow");
+		awaitItems(first, "arrow");
+		awaitItems(second, "arrow");
+		publish(4, "arrow", "shield");
+		awaitItems(first, "arrow", "shield");
+		awaitItems(second, "arrow", "shield");
+
+		// Depending on when it reconnected, the recorder joined the new publisher
+		// at one of its first messages, starting with the whole config as of it
+		long epoch = recorded.get(0).getEpoch();
+		await(() -> recorded.get(recorded.size() - 1).getEpoch() != epoch
+				&& recorded.get(recorded.size() - 1).getSequence() == 3);
+		List<ConfigDelta> restarted = recorded.subList(2, recorded.size());
+		assertEquals(ConfigDelta.Kind.FULL, restarted.get(0).getKind());
+		for (ConfigDelta message : restarted)
+			assertNotEquals(epoch, message.getEpoch());
+	}
+
+	@Test
+	public void aStalledSubscriberDoesNotHoldUpSends() throws Exception {
+		SocketTransport transport = SocketTransport.tcp("127.0.0.1", port);
+		open.add(transport);
+		transport.openPublisher();
+		// Connects and never reads, so its socket buffers fill up
+		Socket stalled = new Socket(InetAddress.getLoopbackAddress(), port);
+		open.add(stalled);
+		record(port);
+		JsonArray padding = new JsonArray();
+		for (int i = 0; i < 1024; i++)
+			padding.add("padding " + i);
+		Thread sender = new Thread(() -> {
+			for (int i = 1; i <= 2000; i++) {
+				JsonObject tree = new JsonObject();
+				tree.addProperty("version", i);
+				tree.add("padding", padding);
+				ConfigDelta full = ConfigDelta.full("shop", 1, i, i, tree);
+				transport.send(full, full);
+			}
+		});
+		sender.start();
+		sender.join(TIMEOUT);
+		assertFalse(sender.isAlive(), "sending blocked on the stalled subscriber");
+		await(() -> !recorded.isEmpty() && recorded.get(recorded.size() - 1).getSequence() == 2000);
+	}
+
+	private ConfigPublisher publisher() throws IOException {
+		ConfigPublisher publisher;
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (true) {
+			try {
+				publisher = new ConfigPublisher(SocketTransport.tcp("127.0.0.1", port));
+				break;
+			} catch (BindException e) {
+				// A closed publisher's socket is released once its accept thread is
+				// out of accept
+				if (System.currentTimeMillis() > deadline)
+					throw e;
+				sleep(10);
+			}
+		}
+		open.add(publisher);
+		publisher.publish("shop", source);
+		return publisher;
+	}
+
+	private void publish(int version, String... items) {
+		JsonObject tree = new JsonObject();
+		tree.addProperty("version", version);
+		JsonArray array = new JsonArray();
+		for (String item : items)
+			array.add(item);
+		tree.add("items", array);
+		assertTrue(source.applyTree(tree, ++fingerprint), "the source didn't take " + tree);
+	}
+
+	private void subscribe(int port, ConfigManager<Shop> manager) throws IOException {
+		ConfigSubscriber subscriber = new ConfigSubscriber(SocketTransport.tcp("127.0.0.1", port));
+		open.add(subscriber);
+		subscriber.subscribe("shop", manager).start();
+	}
+
+	private void record(int port) throws IOException {
+		SocketTransport transport = SocketTransport.tcp("127.0.0.1", port);
+		open.add(transport);
+		transport.openSubscriber(recorded::add);
+	}
+
+	private Proxy proxy() throws IOException {
+		Proxy proxy = new Proxy(port);
+		open.add(proxy);
+		return proxy;
+	}
+
+	private List<ConfigDelta.Kind> kinds() {
+		return recorded.stream().map(ConfigDelta::getKind).collect(Collectors.toList());
+	}
+
+	private static void awaitItems(ConfigManager<Shop> manager, String... items) {
+		List<String> expected = Arrays.asList(items);
+		await(() -> manager.getConfig() != null && expected.equals(manager.getConfig().items));
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline)
+				fail("Timed out");
+			sleep(10);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail("Interrupted");
+		}
+	}
+
+	private static int freePort() {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static class Shop {
+		private int version;
+		private List<String> items;
+	}
+
+	/**
+	 * Sits between a subscriber and the publisher. It can drop frames on their
+	 * way to the subscriber and cut every connection, and counts the resyncs
+	 * asked for.
+	 */
+	private static final class Proxy implements Closeable {
+		private final ServerSocket server;
+		private final int port;
+		private final AtomicInteger dropNext = new AtomicInteger();
+		private final AtomicInteger resyncs = new AtomicInteger();
+		private final AtomicInteger connections = new AtomicInteger();
+		private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+		private Proxy(int upstreamPort) throws IOException {
+			server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			port = server.getLocalPort();
+			daemon(() -> {
+				try {
+					while (true) {
+						Socket client = server.accept();
+						Socket upstream = new Socket(InetAddress.getLoopbackAddress(), upstreamPort);
+						sockets.add(client);
+						sockets.add(upstream);
+						connections.incrementAndGet();
+						daemon(() -> pipe(upstream.getInputStream(), client.getOutputStream(), true));
+						daemon(() -> pipe(client.getInputStream(), upstream.getOutputStream(), false));
+					}
+				} catch (IOException e) {
+					// Closed
+				}
+			});
+		}
+
+		private void pipe(InputStream from, OutputStream to, boolean toSubscriber) throws IOException {
+			DataInputStream in = new DataInputStream(from);
+			DataOutputStream out = new DataOutputStream(to);
+			while (true) {
+				byte[] frame = new byte[in.readInt()];
+				in.readFully(frame);
+				if (toSubscriber && dropNext.getAndUpdate((left) -> Math.max(0, left - 1)) > 0)
+					continue;
+				if (!toSubscriber && ConfigDelta.decode(frame).getKind() == ConfigDelta.Kind.RESYNC)
+					resyncs.incrementAndGet();
+				out.writeInt(frame.length);
+				out.write(frame);
+				out.flush();
+			}
+		}
+
+		private void cut() throws IOException {
+			for (Socket socket : sockets)
+				socket.close();
+			sockets.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			server.close();
+			cut();
+		}
+
+		private interface IoTask {
+			void run() throws IOException;
+		}
+
+		private static void daemon(IoTask task) {
+			Thread thread = new Thread(() -> {
+				try {
+					task.run();
+				} catch (IOException e) {
+					// Cut or closed
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+}
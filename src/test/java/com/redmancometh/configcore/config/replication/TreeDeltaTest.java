@@ -0,0 +1,155 @@
+package com.redmancometh.configcore.config.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Applying the diff of two trees to the first has to give the second, without
+ * changing the first.
+ *
+ * @author Redmancometh
+ *
+ */
+public class TreeDeltaTest {
+	@Test
+	public void appendsToArrays() {
+		JsonArray operations = assertRoundTrip("{\"items\":[1,2]}", "{\"items\":[1,2,3,4]}");
+		assertEquals(parse("[[\"set\",[\"items\",2],3],[\"set\",[\"items\",3],4]]"), operations);
+	}
+
+	@Test
+	public void truncatesArrays() {
+		JsonArray operations = assertRoundTrip("{\"items\":[1,2,3,4]}", "{\"items\":[1]}");
+		assertEquals(parse("[[\"truncate\",[\"items\"],1]]"), operations);
+	}
+
+	@Test
+	public void truncatesToEmpty() {
+		assertRoundTrip("{\"items\":[{\"a\":1},{\"a\":2}]}", "{\"items\":[]}");
+	}
+
+	@Test
+	public void changesInsideTruncatedArrays() {
+		assertRoundTrip("{\"items\":[{\"a\":1},{\"a\":2},{\"a\":3}]}", "{\"items\":[{\"a\":5},{\"b\":2}]}");
+	}
+
+	@Test
+	public void appendsToNestedArrays() {
+		assertRoundTrip("[[1],[2,3],[]]", "[[1,9],[2],[4,5,6],[7]]");
+	}
+
+	@Test
+	public void setsRemovesAndReplacesMembers() {
+		assertRoundTrip("{\"a\":1,\"b\":{\"c\":true,\"d\":\"x\"},\"e\":[1]}",
+				"{\"a\":2,\"b\":{\"c\":true,\"f\":null},\"e\":{\"now\":\"an object\"}}");
+	}
+
+	@Test
+	public void replacesTheRoot() {
+		assertRoundTrip("{\"a\":1}", "[1,2]");
+	}
+
+	@Test
+	public void equalTreesHaveNoOperations() {
+		JsonElement tree = parse("{\"a\":[1,{\"b\":2}]}");
+		assertEquals(0, TreeDelta.diff(tree, tree.deepCopy()).size());
+		assertSame(tree, TreeDelta.apply(tree, new JsonArray()));
+	}
+
+	@Test
+	public void rejectsOperationsForAnotherTree() {
+		JsonArray operations = TreeDelta.diff(parse("{\"a\":{\"b\":1}}"), parse("{\"a\":{}}"));
+		assertThrows(IllegalStateException.class, () -> TreeDelta.apply(parse("{\"c\":1}"), operations));
+		assertThrows(IllegalStateException.class, () -> TreeDelta.apply(parse("{\"a\":{}}"), operations));
+		JsonArray append = TreeDelta.diff(parse("[1]"), parse("[1,2,3]"));
+		assertThrows(IllegalStateException.class, () -> TreeDelta.apply(parse("[]"), append));
+	}
+
+	@Test
+	public void roundTripsRandomChanges() {
+		Random random = new Random(22);
+		for (int i = 0; i < 2000; i++) {
+			JsonElement before = randomTree(random, 4);
+			JsonElement after = mutate(random, before.deepCopy(), 4);
+			assertRoundTrip(before, after);
+		}
+	}
+
+	private static JsonArray assertRoundTrip(String before, String after) {
+		return assertRoundTrip(parse(before), parse(after));
+	}
+
+	private static JsonArray assertRoundTrip(JsonElement before, JsonElement after) {
+		JsonElement untouched = before.deepCopy();
+		JsonArray operations = TreeDelta.diff(before, after);
+		assertEquals(after, TreeDelta.apply(before, operations), before + " -> " + after + " with " + operations);
+		assertEquals(untouched, before, "applying changed the tree it was given");
+		return operations;
+	}
+
+	private static JsonElement parse(String json) {
+		return JsonParser.parseString(json);
+	}
+
+	private static JsonElement randomTree(Random random, int depth) {
+		switch (depth == 0 ? 2 : random.nextInt(3)) {
+		case 0:
+			JsonObject object = new JsonObject();
+			for (int i = random.nextInt(4); i > 0; i--)
+				object.add("k" + random.nextInt(6), randomTree(random, depth - 1));
+			return object;
+		case 1:
+			JsonArray array = new JsonArray();
+			for (int i = random.nextInt(5); i > 0; i--)
+				array.add(randomTree(random, depth - 1));
+			return array;
+		default:
+			return new JsonPrimitive(random.nextInt(4));
+		}
+	}
+
+	/**
+	 * Change some of the tree in place: members added, replaced and removed,
+	 * arrays grown and cut short.
+	 */
+	private static JsonElement mutate(Random random, JsonElement tree, int depth) {
+		if (depth == 0 || random.nextInt(8) == 0)
+			return randomTree(random, depth);
+		if (tree.isJsonObject()) {
+			JsonObject object = tree.getAsJsonObject();
+			for (String key : object.keySet().toArray(new String[0])) {
+				int roll = random.nextInt(4);
+				if (roll == 0)
+					object.remove(key);
+				else if (roll == 1)
+					object.add(key, mutate(random, object.get(key), depth - 1));
+			}
+			if (random.nextBoolean())
+				object.add("k" + random.nextInt(8), randomTree(random, depth - 1));
+		} else if (tree.isJsonArray()) {
+			JsonArray array = tree.getAsJsonArray();
+			for (int i = 0; i < array.size(); i++)
+				if (random.nextInt(3) == 0)
+					array.set(i, mutate(random, array.get(i), depth - 1));
+			if (random.nextBoolean()) {
+				for (int i = random.nextInt(3); i > 0; i--)
+					array.add(randomTree(random, depth - 1));
+			} else {
+				for (int i = random.nextInt(3); i > 0 && array.size() > 0; i--)
+					array.remove(array.size() - 1);
+			}
+		}
+		return tree;
+	}
+}